@@ -0,0 +1,78 @@
+package flashtext.jmh;
+
+import flashtext.KeywordMatcher;
+import flashtext.KeywordProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 逐个 add_keyword 建字典，以及建完之后 compile 成快照的耗时，和 {@link KeywordMatcher#build} 一次性建字典的耗时。
+ * 内存占用可以加上 -prof gc 看每次建字典分配了多少
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BuildBenchmark {
+
+    private static final List<String> BOUNDARIES = Arrays.asList(" ", "\t", "\n", ",", ".");
+
+    @Param({"1000", "100000", "1000000"})
+    public int dictionary_size;
+
+    @Param({"ENGLISH", "CHINESE"})
+    public Corpus.Language language;
+
+    @Param({"false", "true"})
+    public boolean case_sensitive;
+
+    private List<String> keywords;
+    private List<Map.Entry<String, String>> pairs;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.keywords = Corpus.keywords(this.language, this.dictionary_size, 1);
+        this.pairs = new ArrayList<>(this.keywords.size());
+        for (int i = 0; i < this.keywords.size(); i++)
+            this.pairs.add(new AbstractMap.SimpleImmutableEntry<>(this.keywords.get(i), "clean" + i));
+    }
+
+    @Benchmark
+    public KeywordProcessor add_keyword() {
+        return build();
+    }
+
+    @Benchmark
+    public KeywordMatcher add_keyword_and_compile() {
+        return build().compile();
+    }
+
+    @Benchmark
+    public KeywordMatcher bulk_build() {
+        return KeywordMatcher.build(this.pairs, this.case_sensitive, BOUNDARIES);
+    }
+
+    /**
+     * 和 bulk_build 一样，但是在当前线程上依次建各个子树，用来看并行带来的提升
+     */
+    @Benchmark
+    public KeywordMatcher bulk_build_single_thread() {
+        return KeywordMatcher.build(this.pairs.stream(), this.case_sensitive, BOUNDARIES, Runnable::run);
+    }
+
+    private KeywordProcessor build() {
+        KeywordProcessor processor = new KeywordProcessor();
+        processor.case_sensitive = this.case_sensitive;
+        for (int i = 0; i < this.keywords.size(); i++)
+            processor.add_keyword(this.keywords.get(i), "clean" + i);
+        return processor;
+    }
+}
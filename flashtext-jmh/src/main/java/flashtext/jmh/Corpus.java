@@ -0,0 +1,89 @@
+package flashtext.jmh;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 本地生成的测试语料，种子固定，每次跑出来的字典和文本都一样，方便前后对比。
+ */
+public final class Corpus {
+
+    public enum Language {
+        /**
+         * 小写字母组成的单词，1 到 3 个单词一个关键字，文本用空格分隔
+         */
+        ENGLISH,
+        /**
+         * 常用汉字组成的词，2 到 6 个字一个关键字，文本没有分隔
+         */
+        CHINESE
+    }
+
+    private static final int CHINESE_CHARS = 3000;
+
+    private Corpus() {
+    }
+
+    public static List<String> keywords(Language language, int size, long seed) {
+        Random random = new Random(seed);
+        List<String> keywords = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            StringBuilder keyword = new StringBuilder();
+            if (language == Language.ENGLISH) {
+                int words = 1 + random.nextInt(3);
+                for (int w = 0; w < words; w++) {
+                    if (w > 0)
+                        keyword.append(' ');
+                    append_word(keyword, random);
+                }
+            } else {
+                int len = 2 + random.nextInt(5);
+                for (int j = 0; j < len; j++)
+                    keyword.append(chinese_char(random));
+            }
+            keywords.add(keyword.toString());
+        }
+        return keywords;
+    }
+
+    /**
+     * 生成 length 个字符左右的文本。
+     *
+     * @param match_density 每个片段是字典里关键字的概率，其余的片段是随机生成的
+     * @param mixed_case    英文随机把一些字母变成大写，用来测大小写不敏感的匹配
+     */
+    public static String text(Language language, List<String> keywords, int length, double match_density,
+                              boolean mixed_case, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(length + 64);
+        while (text.length() < length) {
+            int begin = text.length();
+            if (random.nextDouble() < match_density) {
+                text.append(keywords.get(random.nextInt(keywords.size())));
+            } else if (language == Language.ENGLISH) {
+                append_word(text, random);
+            } else {
+                int len = 1 + random.nextInt(6);
+                for (int j = 0; j < len; j++)
+                    text.append(chinese_char(random));
+            }
+
+            if (mixed_case && random.nextInt(4) == 0)
+                text.setCharAt(begin, Character.toUpperCase(text.charAt(begin)));
+            if (language == Language.ENGLISH)
+                text.append(random.nextInt(10) == 0 ? ", " : " ");
+        }
+        return text.toString();
+    }
+
+    private static void append_word(StringBuilder builder, Random random) {
+        int len = 3 + random.nextInt(6);
+        for (int j = 0; j < len; j++)
+            builder.append((char) ('a' + random.nextInt(26)));
+    }
+
+    private static char chinese_char(Random random) {
+        return (char) (0x4e00 + random.nextInt(CHINESE_CHARS));
+    }
+}
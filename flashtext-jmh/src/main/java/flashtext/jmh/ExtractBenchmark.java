@@ -0,0 +1,84 @@
+package flashtext.jmh;
+
+import flashtext.KeywordProcessor;
+import flashtext.MatchConsumer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * extract_keywords 的吞吐量，每秒处理多少篇 text_length 长的文本。分配速率用 {@code -prof gc} 看。
+ * contains_any 匹配到第一个关键字就停，match_density 越高越快。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ExtractBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int dictionary_size;
+
+    @Param({"1000", "100000"})
+    public int text_length;
+
+    @Param({"0.01", "0.2"})
+    public double match_density;
+
+    @Param({"false", "true"})
+    public boolean case_sensitive;
+
+    @Param({"ENGLISH", "CHINESE"})
+    public Corpus.Language language;
+
+    private KeywordProcessor processor;
+    private String text;
+    private int matched_chars;
+    private final MatchConsumer consumer = (clean_name, start, end) -> this.matched_chars += end - start;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<String> keywords = Corpus.keywords(this.language, this.dictionary_size, 1);
+        this.processor = new KeywordProcessor();
+        this.processor.case_sensitive = this.case_sensitive;
+        for (int i = 0; i < keywords.size(); i++)
+            this.processor.add_keyword(keywords.get(i), "clean" + i);
+        this.processor.compile();
+        this.text = Corpus.text(this.language, keywords, this.text_length, this.match_density, !this.case_sensitive, 3);
+    }
+
+    @Benchmark
+    public List<KeywordProcessor.MatchResult> extract_keywords() {
+        return this.processor.extract_keywords(this.text);
+    }
+
+    @Benchmark
+    public int extract_keywords_consumer() {
+        this.matched_chars = 0;
+        this.processor.extract_keywords(this.text, this.consumer);
+        return this.matched_chars;
+    }
+
+    @Benchmark
+    public boolean contains_any() {
+        return this.processor.contains_any(this.text);
+    }
+
+    @Benchmark
+    public int count_matches() {
+        return this.processor.count_matches(this.text);
+    }
+
+    @Benchmark
+    public List<KeywordProcessor.MatchResult> aho_corasick() {
+        return this.processor.aho_corasick().extract_keywords(this.text);
+    }
+
+    @Benchmark
+    public List<KeywordProcessor.MatchResult> extract_all_matches() {
+        return this.processor.extract_all_matches(this.text);
+    }
+}
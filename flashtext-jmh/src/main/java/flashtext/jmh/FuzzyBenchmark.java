@@ -0,0 +1,124 @@
+package flashtext.jmh;
+
+import flashtext.FuzzyMatcher;
+import flashtext.KeywordProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 拼写错误的查找：在字典树上走编辑距离 vs 先生成所有拼错的变体再逐个 get_keyword。
+ * 查询的词是从字典里随机挑的关键字再随机改 max_cost 个字符。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class FuzzyBenchmark {
+
+    private static final int QUERIES = 256;
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz ";
+
+    @Param({"1000", "100000"})
+    public int dictionary_size;
+
+    @Param({"1", "2"})
+    public int max_cost;
+
+    private KeywordProcessor processor;
+    private String[] queries;
+    private String text;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<String> keywords = Corpus.keywords(Corpus.Language.ENGLISH, this.dictionary_size, 1);
+        this.processor = new KeywordProcessor();
+        for (int i = 0; i < keywords.size(); i++)
+            this.processor.add_keyword(keywords.get(i), "clean" + i);
+        this.processor.compile();
+
+        Random random = new Random(3);
+        List<String> misspelled = new ArrayList<>();
+        for (int i = 0; i < QUERIES; i++)
+            misspelled.add(misspell(keywords.get(random.nextInt(keywords.size())), random));
+        this.queries = misspelled.toArray(new String[0]);
+        this.text = Corpus.text(Corpus.Language.ENGLISH, misspelled, 10000, 0.2, false, 4);
+    }
+
+    @Benchmark
+    public Map<String, Integer> get_fuzzy_keywords() {
+        return this.processor.get_fuzzy_keywords(this.queries[this.next++ & (QUERIES - 1)], this.max_cost);
+    }
+
+    /**
+     * 对照：枚举编辑距离不超过 max_cost 的所有变体，逐个查字典
+     */
+    @Benchmark
+    public Set<String> generate_variants() {
+        Set<String> variants = new HashSet<>();
+        variants.add(this.queries[this.next++ & (QUERIES - 1)]);
+        for (int cost = 0; cost < this.max_cost; cost++) {
+            Set<String> expanded = new HashSet<>(variants);
+            for (String variant : variants)
+                add_edits(variant, expanded);
+            variants = expanded;
+        }
+
+        Set<String> found = new HashSet<>();
+        for (String variant : variants) {
+            String clean_name = this.processor.get_keyword(variant);
+            if (clean_name != null)
+                found.add(clean_name);
+        }
+        return found;
+    }
+
+    /**
+     * 一万个字符左右的文本，其中两成是拼错的关键字
+     */
+    @Benchmark
+    public List<FuzzyMatcher.FuzzyMatch> extract_keywords_fuzzy() {
+        return this.processor.extract_keywords(this.text, this.max_cost);
+    }
+
+    private String misspell(String keyword, Random random) {
+        StringBuilder word = new StringBuilder(keyword);
+        for (int i = 0; i < this.max_cost; i++) {
+            int pos = random.nextInt(word.length());
+            switch (random.nextInt(3)) {
+                case 0:
+                    word.setCharAt(pos, (char) ('a' + random.nextInt(26)));
+                    break;
+                case 1:
+                    word.insert(pos, (char) ('a' + random.nextInt(26)));
+                    break;
+                default:
+                    if (word.length() > 1)
+                        word.deleteCharAt(pos);
+            }
+        }
+        return word.toString();
+    }
+
+    private static void add_edits(String word, Set<String> edits) {
+        for (int i = 0; i <= word.length(); i++) {
+            for (int c = 0; c < ALPHABET.length(); c++) {
+                char ch = ALPHABET.charAt(c);
+                edits.add(word.substring(0, i) + ch + word.substring(i));
+                if (i < word.length())
+                    edits.add(word.substring(0, i) + ch + word.substring(i + 1));
+            }
+            if (i < word.length())
+                edits.add(word.substring(0, i) + word.substring(i + 1));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package flashtext.jmh;
+
+import flashtext.KeywordProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * get_keyword 查单个关键字，一半命中一半不命中
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LookupBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    @Param({"1000", "100000", "1000000"})
+    public int dictionary_size;
+
+    @Param({"ENGLISH", "CHINESE"})
+    public Corpus.Language language;
+
+    @Param({"false", "true"})
+    public boolean case_sensitive;
+
+    private KeywordProcessor processor;
+    private String[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<String> keywords = Corpus.keywords(this.language, this.dictionary_size, 1);
+        this.processor = new KeywordProcessor();
+        this.processor.case_sensitive = this.case_sensitive;
+        for (int i = 0; i < keywords.size(); i++)
+            this.processor.add_keyword(keywords.get(i), "clean" + i);
+        this.processor.compile();
+
+        // 用另一个种子生成的关键字基本都不在字典里
+        List<String> misses = Corpus.keywords(this.language, QUERIES, 2);
+        this.queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++)
+            this.queries[i] = i % 2 == 0 ? keywords.get(i * 7919 % keywords.size()) : misses.get(i);
+    }
+
+    @Benchmark
+    public String get_keyword() {
+        return this.processor.get_keyword(this.queries[this.next++ & (QUERIES - 1)]);
+    }
+}
@@ -0,0 +1,63 @@
+package flashtext.jmh;
+
+import flashtext.KeywordProcessor;
+import flashtext.MatchConsumer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大量短文本、绝大部分都不含关键字的时候，开和不开 {@link KeywordProcessor#quick_reject} 的吞吐量，每秒处理多少篇 text_length 长的文本。
+ * 排除的比例和省下的时间可以挂上 {@link flashtext.ScanMetrics} 看，这里只看总的效果。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class QuickRejectBenchmark {
+
+    private static final int TEXTS = 1024;
+
+    @Param({"1000", "100000"})
+    public int dictionary_size;
+
+    @Param({"32", "256"})
+    public int text_length;
+
+    @Param({"ENGLISH", "CHINESE"})
+    public Corpus.Language language;
+
+    @Param({"false", "true"})
+    public boolean quick_reject;
+
+    private KeywordProcessor processor;
+    private String[] texts;
+    private int next;
+    private int matched_chars;
+    private final MatchConsumer consumer = (clean_name, start, end) -> this.matched_chars += end - start;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<String> keywords = Corpus.keywords(this.language, this.dictionary_size, 1);
+        this.processor = new KeywordProcessor();
+        for (int i = 0; i < keywords.size(); i++)
+            this.processor.add_keyword(keywords.get(i), "clean" + i);
+        this.processor.quick_reject = this.quick_reject;
+        this.processor.compile();
+
+        // 每个片段是关键字的概率很低，大部分文本都不含关键字
+        this.texts = new String[TEXTS];
+        for (int i = 0; i < TEXTS; i++)
+            this.texts[i] = Corpus.text(this.language, keywords, this.text_length, 0.01, false, i);
+    }
+
+    @Benchmark
+    public int extract_keywords_consumer() {
+        this.matched_chars = 0;
+        this.processor.extract_keywords(this.texts[this.next++ & (TEXTS - 1)], this.consumer);
+        return this.matched_chars;
+    }
+}
@@ -0,0 +1,58 @@
+package flashtext.jmh;
+
+import flashtext.KeywordProcessor;
+import flashtext.MatchConsumer;
+import flashtext.TokenTrieMatcher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 英文的多词关键字，按字符的字典树和按词的字典树 {@link TokenTrieMatcher} 的吞吐量，每秒处理多少篇 100000 个字符的文本。
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TokenTrieBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int dictionary_size;
+
+    @Param({"0.01", "0.2"})
+    public double match_density;
+
+    private KeywordProcessor processor;
+    private TokenTrieMatcher token_trie;
+    private String text;
+    private int matched_chars;
+    private final MatchConsumer consumer = (clean_name, start, end) -> this.matched_chars += end - start;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<String> keywords = Corpus.keywords(Corpus.Language.ENGLISH, this.dictionary_size, 1);
+        this.processor = new KeywordProcessor();
+        for (int i = 0; i < keywords.size(); i++)
+            this.processor.add_keyword(keywords.get(i), "clean" + i);
+        this.processor.compile();
+        this.token_trie = this.processor.token_trie();
+        this.text = Corpus.text(Corpus.Language.ENGLISH, keywords, 100000, this.match_density, false, 3);
+    }
+
+    @Benchmark
+    public int char_trie() {
+        this.matched_chars = 0;
+        this.processor.extract_keywords(this.text, this.consumer);
+        return this.matched_chars;
+    }
+
+    @Benchmark
+    public int token_trie() {
+        this.matched_chars = 0;
+        this.token_trie.extract_keywords(this.text, this.consumer);
+        return this.matched_chars;
+    }
+}
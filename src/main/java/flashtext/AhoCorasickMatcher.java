@@ -0,0 +1,275 @@
+package flashtext;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 在编译好的字典树上加 failure link 的 Aho-Corasick 自动机，用于中文这种没有单词分界的文本。
+ * <p>
+ * 和 {@link KeywordMatcher#extract_keywords(String)} 的区别：
+ * - 不看 word_boundaries，关键字可以出现在任意位置；
+ * - 匹配失败不会回到根节点重新开始，而是沿着 failure link 继续，每个字符只看一次，
+ *   总耗时和文本长度加上命中次数成正比。
+ * 结果的规则不变：忽略 {@link KeywordMatcher#char_classifier()} 里的特殊字符，从左往右取最靠左、最长的关键字，匹配之间不重叠。
+ * 想要所有命中，包括嵌套和重叠的，用 {@link #extract_all_matches(CharSequence, MatchConsumer)}。
+ * <p>
+ * 不可变，可以被多个线程同时使用。
+ */
+public final class AhoCorasickMatcher {
+
+    private final CompiledTrie trie;
+    private final boolean case_sensitive;
+    private final CharClassifier char_classifier;
+    /**
+     * 匹配失败时跳到的节点：当前路径最长的、同时也是某个关键字前缀的后缀
+     */
+    private final int[] fail;
+    /**
+     * 沿着 failure link 能走到的最近一个关键字结尾节点，没有则是 {@link Trie#NO_NODE}
+     */
+    private final int[] output;
+    private final int[] depth;
+    private final int max_depth;
+
+    private AhoCorasickMatcher(CompiledTrie trie, boolean case_sensitive, CharClassifier char_classifier) {
+        this.trie = trie;
+        this.case_sensitive = case_sensitive;
+        this.char_classifier = char_classifier;
+
+        int node_count = trie.node_count();
+        this.fail = new int[node_count];
+        this.output = new int[node_count];
+        this.depth = new int[node_count];
+
+        int root = trie.root();
+        int max_depth = 0;
+        this.fail[root] = root;
+        this.output[root] = Trie.NO_NODE;
+        // CompiledTrie 的节点是按广度优先编号的，父节点一定在子节点前面
+        for (int node = 0; node < node_count; node++) {
+            for (int i = 0; i < trie.child_count(node); i++) {
+                int child = trie.child_node(node, i);
+                char ch = trie.child_key(node, i);
+
+                int target = root;
+                if (node != root) {
+                    int f = this.fail[node];
+                    while (f != root && trie.child(f, ch) == Trie.NO_NODE)
+                        f = this.fail[f];
+                    int next = trie.child(f, ch);
+                    if (next != Trie.NO_NODE)
+                        target = next;
+                }
+                this.fail[child] = target;
+                this.output[child] = trie.clean_name(target) != null ? target : this.output[target];
+                this.depth[child] = this.depth[node] + 1;
+                max_depth = Math.max(max_depth, this.depth[child]);
+            }
+        }
+        this.max_depth = max_depth;
+    }
+
+    /**
+     * 堆外的快照不支持，见 {@link KeywordMatcher#off_heap()}
+     */
+    public static AhoCorasickMatcher of(KeywordMatcher matcher) {
+        matcher.require_on_heap("aho_corasick");
+        Trie trie = matcher.trie();
+        CompiledTrie compiled = trie instanceof CompiledTrie ? (CompiledTrie) trie : CompiledTrie.of(trie);
+        return new AhoCorasickMatcher(compiled, matcher.case_sensitive(), matcher.char_classifier());
+    }
+
+    public List<KeywordProcessor.MatchResult> extract_keywords(String sentence) {
+        List<KeywordProcessor.MatchResult> keywords_extracted = new ArrayList<>();
+        extract_keywords(sentence, (clean_name, start, end) ->
+                keywords_extracted.add(new KeywordProcessor.MatchResult(clean_name, start, end)));
+        return keywords_extracted;
+    }
+
+    /**
+     * 匹配结果通过回调给出，每次调用只分配一个和最长关键字一样长的窗口，和文本长度无关
+     */
+    public void extract_keywords(CharSequence sentence, MatchConsumer consumer) {
+        extract_keywords(ScanText.of(sentence), consumer);
+    }
+
+    /**
+     * 流式匹配，见 {@link KeywordMatcher#extract_keywords(Reader, MatchConsumer)}。
+     * 自动机每个字符只看一次，缓冲区不会因为关键字长而变大。流最长 {@link KeywordMatcher#MAX_STREAM_LENGTH} 个字符。
+     */
+    public void extract_keywords(Reader reader, MatchConsumer consumer) throws IOException {
+        try {
+            extract_keywords(ScanText.of(reader, KeywordMatcher.STREAM_BUFFER_SIZE), consumer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 所有命中，包括嵌套和重叠的，比如 "hello world" 和 "hello world life" 都会出现，见 {@link #extract_all_matches(CharSequence, MatchConsumer)}
+     */
+    public List<KeywordProcessor.MatchResult> extract_all_matches(String sentence) {
+        List<KeywordProcessor.MatchResult> keywords_extracted = new ArrayList<>();
+        extract_all_matches(sentence, (clean_name, start, end) ->
+                keywords_extracted.add(new KeywordProcessor.MatchResult(clean_name, start, end)));
+        return keywords_extracted;
+    }
+
+    /**
+     * 报告每一个命中的关键字，不取最长、也不去掉重叠：每到一个字符，当前节点和它 output 链上的每个关键字都在这里结尾。
+     * 只扫一遍，总耗时和文本长度加上命中次数成正比。
+     * <p>
+     * 结果按结束位置排列，结束位置相同的长的在前。忽略的特殊字符和 {@link #extract_keywords(String)} 一样，不看分界。
+     */
+    public void extract_all_matches(CharSequence sentence, MatchConsumer consumer) {
+        extract_all_matches(ScanText.of(sentence), consumer);
+    }
+
+    /**
+     * 流式版本，见 {@link #extract_all_matches(CharSequence, MatchConsumer)}。流最长 {@link KeywordMatcher#MAX_STREAM_LENGTH} 个字符
+     */
+    public void extract_all_matches(Reader reader, MatchConsumer consumer) throws IOException {
+        try {
+            extract_all_matches(ScanText.of(reader, KeywordMatcher.STREAM_BUFFER_SIZE), consumer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void extract_all_matches(ScanText text, MatchConsumer consumer) {
+        if (this.max_depth == 0)
+            return;
+
+        // 最近 max_depth 个有效字符在原文里的位置，用来把关键字的起点换算回原文
+        int[] offsets = new int[this.max_depth];
+        CompiledTrie trie = this.trie;
+        int root = trie.root();
+        int state = root;
+        int k = -1;
+
+        for (int idx = 0; text.has(idx); idx++) {
+            text.release(idx);
+            char ch = text.at(idx);
+            // 和 KeywordMatcher 一样，先转大小写再判断是不是忽略的字符
+            if (!this.case_sensitive)
+                ch = CaseFolding.fold(ch);
+            if (this.char_classifier.is_ignored(ch))
+                continue;
+
+            k++;
+            offsets[k % offsets.length] = idx;
+
+            int next;
+            while ((next = trie.child(state, ch)) == Trie.NO_NODE && state != root)
+                state = this.fail[state];
+            state = next == Trie.NO_NODE ? root : next;
+
+            int found = trie.clean_name(state) != null ? state : this.output[state];
+            while (found != Trie.NO_NODE) {
+                int start = offsets[(k - this.depth[found] + 1) % offsets.length];
+                consumer.accept(trie.clean_name(found), start, idx + 1);
+                found = this.output[found];
+            }
+        }
+    }
+
+    private void extract_keywords(ScanText text, MatchConsumer consumer) {
+        if (this.max_depth == 0)
+            return;
+
+        // 最近 max_depth + 1 个有效字符（跳过的标点不算）的信息，用有效字符的序号取模作为下标：
+        // 字符在原文里的位置，以及从这个字符开始的最长关键字在哪里结束
+        int window = this.max_depth + 1;
+        Window pending = new Window(window);
+
+        CompiledTrie trie = this.trie;
+        int root = trie.root();
+        int state = root;
+        // 有效字符的序号
+        int k = -1;
+        // 比它小的起点都已经确定下来了
+        int settled = 0;
+        // 下一个匹配最早可以从哪个有效字符开始，保证匹配之间不重叠
+        int next_start = 0;
+
+        for (int idx = 0; text.has(idx); idx++) {
+            text.release(idx);
+            char ch = text.at(idx);
+            // 和 KeywordMatcher 一样，先转大小写再判断是不是忽略的字符
+            if (!this.case_sensitive)
+                ch = CaseFolding.fold(ch);
+            if (this.char_classifier.is_ignored(ch))
+                continue;
+
+            k++;
+            pending.offsets[k % window] = idx;
+            pending.found[k % window] = null;
+
+            int next;
+            while ((next = trie.child(state, ch)) == Trie.NO_NODE && state != root)
+                state = this.fail[state];
+            state = next == Trie.NO_NODE ? root : next;
+
+            // 当前节点以及它的 output 链上的每个关键字都在这里结尾，每个起点只留最长的那个
+            int found = trie.clean_name(state) != null ? state : this.output[state];
+            while (found != Trie.NO_NODE) {
+                int slot = (k - this.depth[found] + 1) % window;
+                if (pending.found[slot] == null || pending.end[slot] < k + 1) {
+                    pending.found[slot] = trie.clean_name(found);
+                    pending.end[slot] = k + 1;
+                    pending.end_offsets[slot] = idx + 1;
+                }
+                found = this.output[found];
+            }
+
+            // 以后的匹配都不会早于当前节点对应的起点，它之前的起点可以按顺序输出了
+            int state_start = k - this.depth[state] + 1;
+            next_start = pending.settle(settled, state_start, next_start, consumer);
+            settled = state_start;
+        }
+        pending.settle(settled, k + 1, next_start, consumer);
+    }
+
+    /**
+     * 还没确定下来的那些起点
+     */
+    private static final class Window {
+        final int[] offsets;
+        final String[] found;
+        /**
+         * 匹配结束的有效字符序号，不包含
+         */
+        final int[] end;
+        /**
+         * 匹配结束在原文里的位置，不包含
+         */
+        final int[] end_offsets;
+
+        Window(int size) {
+            this.offsets = new int[size];
+            this.found = new String[size];
+            this.end = new int[size];
+            this.end_offsets = new int[size];
+        }
+
+        /**
+         * 依次输出 [from, to) 这些起点上的最长匹配，跳过和前面的匹配重叠的
+         *
+         * @return 下一个匹配最早可以从哪个有效字符开始
+         */
+        int settle(int from, int to, int next_start, MatchConsumer consumer) {
+            for (int start = from; start < to; start++) {
+                int slot = start % this.offsets.length;
+                if (start >= next_start && this.found[slot] != null) {
+                    consumer.accept(this.found[slot], this.offsets[slot], this.end_offsets[slot]);
+                    next_start = this.end[slot];
+                }
+                this.found[slot] = null;
+            }
+            return next_start;
+        }
+    }
+}
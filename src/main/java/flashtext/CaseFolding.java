@@ -0,0 +1,46 @@
+package flashtext;
+
+/**
+ * 大小写不敏感时用的逐字符转小写。
+ * <p>
+ * 关键字在加进字典的时候就按这个规则转好，匹配和查询的时候再对每个字符查表，不需要先拷贝一份小写的句子，
+ * 返回的位置也就一直是原文里的位置。
+ * <p>
+ * 和 {@link String#toLowerCase()} 不同，这里一个字符只对应一个字符，也不受默认 Locale 影响，
+ * 所以关键字和文本一定按同样的规则转换。
+ */
+final class CaseFolding {
+
+    /**
+     * BMP 里每个字符转小写之后的字符，128KB，所有字典共用
+     */
+    private static final char[] LOWER = new char[Character.MAX_VALUE + 1];
+
+    static {
+        for (int ch = 0; ch <= Character.MAX_VALUE; ch++)
+            LOWER[ch] = Character.toLowerCase((char) ch);
+    }
+
+    private CaseFolding() {
+    }
+
+    static char fold(char ch) {
+        return LOWER[ch];
+    }
+
+    /**
+     * @return 逐字符转小写之后的字符串，本来就全是小写的时候返回原来的对象
+     */
+    static String fold(String word) {
+        int i = 0;
+        while (i < word.length() && LOWER[word.charAt(i)] == word.charAt(i))
+            i++;
+        if (i == word.length())
+            return word;
+
+        char[] folded = word.toCharArray();
+        for (; i < folded.length; i++)
+            folded[i] = LOWER[folded[i]];
+        return new String(folded);
+    }
+}
@@ -0,0 +1,194 @@
+package flashtext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 匹配时每个字符属于哪一类：忽略的特殊字符，还是单词分界。两类各是一张覆盖整个 BMP 的位图，
+ * 查一个字符就是一次数组访问加一次移位，不分配对象。
+ * <p>
+ * 用 {@link #builder()} 按字符、字符区间或者 Unicode 类别（{@link Character#getType(char)}）配置，
+ * 类别规则在 build 的时候就对每个 BMP 字符算好了。匹配是按 UTF-16 的 char 逐个进行的，
+ * BMP 以外的字符是两个代理字符，不会被归到任何一类里。
+ * <p>
+ * 两类都有的字符按忽略处理，这和原来先判断 {@link KeywordMatcher#PUNCTUATIONS} 的顺序一样。
+ * {@link KeywordProcessor#word_boundaries} 里的单个字符在编译快照的时候并进分界里，见 {@link #with_boundaries(List)}。
+ * <p>
+ * 不可变，可以被多个线程同时使用。
+ */
+public final class CharClassifier {
+
+    /**
+     * 原来的规则：忽略 {@link KeywordMatcher#PUNCTUATIONS} 里的字符，分界只有 word_boundaries
+     */
+    public static final CharClassifier DEFAULT = builder().ignore(KeywordMatcher.PUNCTUATIONS).build();
+
+    /**
+     * 在 {@link #DEFAULT} 的基础上，把全角标点、中日韩标点和引号、省略号这些也当作分界，比如 "，"、"："、"。"。
+     * 按 Unicode 类别挑：所有的标点和空白，再加上中日韩符号和全角符号，比如 "〒"、"＋"、"￥"。
+     * 同一个区里的 "々"、"〇"、"〡" 这些是字母和数字，不算分界
+     */
+    public static final CharClassifier CJK = DEFAULT.to_builder()
+            .boundary_category(Character.SPACE_SEPARATOR)
+            .boundary_category(Character.START_PUNCTUATION)
+            .boundary_category(Character.END_PUNCTUATION)
+            .boundary_category(Character.INITIAL_QUOTE_PUNCTUATION)
+            .boundary_category(Character.FINAL_QUOTE_PUNCTUATION)
+            .boundary_category(Character.DASH_PUNCTUATION)
+            .boundary_category(Character.CONNECTOR_PUNCTUATION)
+            .boundary_category(Character.OTHER_PUNCTUATION)
+            .boundary_category(Character.OTHER_SYMBOL, '\u3000', '\u303f')
+            .boundary_category(Character.MATH_SYMBOL, '\uff00', '\uffef')
+            .boundary_category(Character.CURRENCY_SYMBOL, '\uff00', '\uffef')
+            .boundary_category(Character.MODIFIER_SYMBOL, '\uff00', '\uffef')
+            .boundary_category(Character.OTHER_SYMBOL, '\uff00', '\uffef')
+            .build();
+
+    private static final int WORDS = (Character.MAX_VALUE + 1) / 64;
+
+    private final long[] ignored;
+    private final long[] boundaries;
+    /**
+     * 最近一次 {@link #with_boundaries(List)} 的结果。发布快照的时候 word_boundaries 一般不变，不用每次都拷贝位图
+     */
+    private volatile Merged merged;
+
+    private CharClassifier(long[] ignored, long[] boundaries) {
+        this.ignored = ignored;
+        this.boundaries = boundaries;
+    }
+
+    public static Builder builder() {
+        return new Builder(new long[WORDS], new long[WORDS]);
+    }
+
+    /**
+     * @return 以当前的配置为基础的 builder
+     */
+    public Builder to_builder() {
+        return new Builder(this.ignored.clone(), this.boundaries.clone());
+    }
+
+    /**
+     * @return 匹配的时候是不是跳过这个字符，比如 {@link KeywordMatcher#PUNCTUATIONS}
+     */
+    public boolean is_ignored(char ch) {
+        return (this.ignored[ch >>> 6] & (1L << ch)) != 0;
+    }
+
+    /**
+     * @return 是不是单词分界，不管是不是忽略的字符
+     */
+    public boolean is_boundary(char ch) {
+        return (this.boundaries[ch >>> 6] & (1L << ch)) != 0;
+    }
+
+    /**
+     * @return 再加上 word_boundaries 里的单个字符作为分界。多个字符的分界匹配的时候用不到，不管
+     */
+    CharClassifier with_boundaries(List<String> word_boundaries) {
+        Merged current = this.merged;
+        if (current != null && current.word_boundaries.equals(word_boundaries))
+            return current.classifier;
+
+        long[] boundaries = this.boundaries.clone();
+        for (String boundary : word_boundaries)
+            if (boundary.length() == 1)
+                set(boundaries, boundary.charAt(0));
+        CharClassifier classifier = new CharClassifier(this.ignored, boundaries);
+        this.merged = new Merged(new ArrayList<>(word_boundaries), classifier);
+        return classifier;
+    }
+
+    private static void set(long[] bits, char ch) {
+        bits[ch >>> 6] |= 1L << ch;
+    }
+
+    private static final class Merged {
+        final List<String> word_boundaries;
+        final CharClassifier classifier;
+
+        Merged(List<String> word_boundaries, CharClassifier classifier) {
+            this.word_boundaries = word_boundaries;
+            this.classifier = classifier;
+        }
+    }
+
+    public static final class Builder {
+        private final long[] ignored;
+        private final long[] boundaries;
+
+        private Builder(long[] ignored, long[] boundaries) {
+            this.ignored = ignored;
+            this.boundaries = boundaries;
+        }
+
+        /**
+         * 匹配的时候跳过 chars 里的每个字符
+         */
+        public Builder ignore(String chars) {
+            for (int i = 0; i < chars.length(); i++)
+                set(this.ignored, chars.charAt(i));
+            return this;
+        }
+
+        /**
+         * 跳过 [from, to] 之间的字符
+         */
+        public Builder ignore(char from, char to) {
+            for (int ch = from; ch <= to; ch++)
+                set(this.ignored, (char) ch);
+            return this;
+        }
+
+        /**
+         * 跳过 Unicode 类别是 type 的字符，比如 {@link Character#OTHER_PUNCTUATION}
+         */
+        public Builder ignore_category(int type) {
+            return category(this.ignored, type, Character.MIN_VALUE, Character.MAX_VALUE);
+        }
+
+        /**
+         * chars 里的每个字符都是单词分界
+         */
+        public Builder boundary(String chars) {
+            for (int i = 0; i < chars.length(); i++)
+                set(this.boundaries, chars.charAt(i));
+            return this;
+        }
+
+        /**
+         * [from, to] 之间的字符都是单词分界
+         */
+        public Builder boundary(char from, char to) {
+            for (int ch = from; ch <= to; ch++)
+                set(this.boundaries, (char) ch);
+            return this;
+        }
+
+        /**
+         * Unicode 类别是 type 的字符都是单词分界，比如 {@link Character#SPACE_SEPARATOR}
+         */
+        public Builder boundary_category(int type) {
+            return category(this.boundaries, type, Character.MIN_VALUE, Character.MAX_VALUE);
+        }
+
+        /**
+         * [from, to] 之间 Unicode 类别是 type 的字符都是单词分界，比如只要某个区里的符号，不要同一个区里的字母
+         */
+        public Builder boundary_category(int type, char from, char to) {
+            return category(this.boundaries, type, from, to);
+        }
+
+        private Builder category(long[] bits, int type, char from, char to) {
+            for (int ch = from; ch <= to; ch++)
+                if (Character.getType((char) ch) == type)
+                    set(bits, (char) ch);
+            return this;
+        }
+
+        public CharClassifier build() {
+            return new CharClassifier(this.ignored.clone(), this.boundaries.clone());
+        }
+    }
+}
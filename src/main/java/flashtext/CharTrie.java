@@ -0,0 +1,419 @@
+package flashtext;
+
+import java.util.Arrays;
+
+/**
+ * 紧凑的可变字典树，代替原来 {@code HashMap<String, Object>} 套 {@code HashMap} 的实现。
+ * <p>
+ * 所有节点放在一个节点池里，用下标引用：
+ * - 每个节点的子节点是两个按字符排好序的数组 {@code char[]} + {@code int[]}，查找用二分；
+ * - clean name 直接存在 {@link #clean_names} 里，不再需要 "_keyword_" 这个哨兵 key；
+ * - 叶子节点共用同一个空数组。
+ * 这样每条边只占一个 char 加一个 int，没有单字符 String 和 HashMap.Entry。
+ * <p>
+ * {@link #snapshot()} 可以在 O(1) 时间里拿到当前字典的一份不可变视图：它把已有的节点都冻结起来，
+ * 之后的 put / remove 遇到冻结的节点时先复制一份再改，所以每次修改只复制从根到这个关键字的那条路径，
+ * 已经拿到的视图不受影响。两次 snapshot 之间新建的节点直接原地修改。被替换下来的节点多于还在用的节点时，
+ * 把还在用的节点整理到新的节点池里。
+ * <p>
+ * 非线程安全，修改要在外面加锁；snapshot 返回的视图可以被多个线程同时读。
+ */
+public class CharTrie implements Trie {
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final int[] NO_CHILDREN = new int[0];
+    /**
+     * 被替换下来的节点至少这么多才整理节点池
+     */
+    private static final int COMPACT_THRESHOLD = 1024;
+
+    private char[][] keys;
+    private int[][] children;
+    private String[] clean_names;
+    /**
+     * 节点池用到的最大下标
+     */
+    private int allocated;
+    /**
+     * 删除关键字后空出来的节点，新建节点时优先复用
+     */
+    private int[] free_nodes;
+    private int free_count;
+    private int terms;
+    private int root;
+    /**
+     * 下标比它小的节点可能被某个 snapshot 用着，不能原地修改
+     */
+    private int frozen;
+    /**
+     * 被复制或者删掉、当前字典已经用不到了，但是可能还被 snapshot 用着的节点
+     */
+    private int garbage;
+
+    public CharTrie() {
+        this.keys = new char[16][];
+        this.children = new int[16][];
+        this.clean_names = new String[16];
+        this.free_nodes = new int[16];
+        this.root = new_node();
+    }
+
+    @Override
+    public int root() {
+        return this.root;
+    }
+
+    @Override
+    public int child(int node, char ch) {
+        char[] node_keys = this.keys[node];
+        int i = Arrays.binarySearch(node_keys, ch);
+        return i >= 0 ? this.children[node][i] : NO_NODE;
+    }
+
+    @Override
+    public String clean_name(int node) {
+        return this.clean_names[node];
+    }
+
+    @Override
+    public int child_count(int node) {
+        return this.keys[node].length;
+    }
+
+    @Override
+    public char child_key(int node, int i) {
+        return this.keys[node][i];
+    }
+
+    @Override
+    public int child_node(int node, int i) {
+        return this.children[node][i];
+    }
+
+    @Override
+    public int size() {
+        return this.terms;
+    }
+
+    /**
+     * @return 节点个数，包括根节点
+     */
+    public int node_count() {
+        return this.allocated - this.free_count - this.garbage;
+    }
+
+    /**
+     * @return 当前字典的不可变视图，之后对这个 CharTrie 的修改都不会影响它
+     */
+    public Trie snapshot() {
+        this.frozen = this.allocated;
+        // 空闲的节点没有被任何视图用到，但是下标已经在冻结范围里了，直接算作待整理的节点
+        this.garbage += this.free_count;
+        this.free_count = 0;
+        return new Snapshot(this.keys, this.children, this.clean_names, this.root, this.terms);
+    }
+
+    /**
+     * 插入关键字，已存在则覆盖 clean name。
+     * 关键字不能是空的，否则根节点就成了关键字；clean name 不能是 null，null 表示节点不是关键字结尾。
+     *
+     * @return 关键字原来不存在则返回 true
+     */
+    public boolean put(String keyword, String clean_name) {
+        if (keyword.isEmpty())
+            throw new IllegalArgumentException("keyword must not be empty");
+        if (clean_name == null)
+            throw new IllegalArgumentException("clean_name must not be null: " + keyword);
+        int node = mutable_root();
+        for (int i = 0; i < keyword.length(); i++) {
+            char ch = keyword.charAt(i);
+            int pos = Arrays.binarySearch(this.keys[node], ch);
+            if (pos >= 0) {
+                node = mutable_child(node, pos);
+            } else {
+                int next = new_node();
+                add_edge(node, ch, next);
+                node = next;
+            }
+        }
+
+        boolean status = this.clean_names[node] == null;
+        if (status)
+            this.terms += 1;
+        this.clean_names[node] = clean_name;
+        compact_if_needed();
+        return status;
+    }
+
+    /**
+     * 删除关键字，并且把不再被其他关键字用到的节点一路删掉。
+     *
+     * @return 关键字存在并且删掉了则返回 true
+     */
+    public boolean remove(String keyword) {
+        // 先确认关键字存在，不存在就不用复制路径
+        int node = this.root;
+        for (int i = 0; i < keyword.length() && node != NO_NODE; i++)
+            node = child(node, keyword.charAt(i));
+        if (node == NO_NODE || this.clean_names[node] == null)
+            return false;
+
+        int[] path = new int[keyword.length() + 1];
+        node = mutable_root();
+        path[0] = node;
+        for (int i = 0; i < keyword.length(); i++) {
+            node = mutable_child(node, Arrays.binarySearch(this.keys[node], keyword.charAt(i)));
+            path[i + 1] = node;
+        }
+
+        this.clean_names[node] = null;
+        this.terms -= 1;
+
+        // 从叶子往上删，直到遇到还有别的关键字经过的节点
+        for (int i = keyword.length(); i > 0; i--) {
+            int current = path[i];
+            if (this.clean_names[current] != null || this.keys[current].length > 0)
+                break;
+            remove_edge(path[i - 1], keyword.charAt(i - 1));
+            free_node(current);
+        }
+        compact_if_needed();
+        return true;
+    }
+
+    /**
+     * 估算字典树结构本身占用的堆内存（64 位 JVM，开启压缩指针），不包括 clean name 字符串，
+     * 因为它们是调用方传进来的，两种实现都一样要存。
+     */
+    public long estimated_bytes() {
+        // 节点池的三个数组
+        long bytes = array_bytes(4, this.keys.length) * 3 + array_bytes(4, this.free_nodes.length);
+        for (int node = 0; node < this.allocated; node++) {
+            if (this.keys[node] == null || this.keys[node].length == 0)
+                continue;
+            bytes += array_bytes(2, this.keys[node].length) + array_bytes(4, this.children[node].length);
+        }
+        return bytes;
+    }
+
+    /**
+     * 估算同样的字典用原来 {@code HashMap<String, Object>} 套 {@code HashMap} 的结构要占多少堆内存，
+     * 用来和 {@link #estimated_bytes()} 对比。
+     * <p>
+     * 每个节点是一个 HashMap，每条边是一个 HashMap.Node 加一个单字符 String，
+     * 关键字结尾多一个 "_keyword_" 的 HashMap.Node（key 是常量，不单独计算）。
+     */
+    public long estimated_map_of_maps_bytes() {
+        long bytes = 0;
+        for (int node : CompiledTrie.bfs_order(this)) {
+            int entries = this.keys[node].length + (this.clean_names[node] != null ? 1 : 0);
+            // HashMap 对象本身
+            bytes += 48;
+            if (entries > 0) {
+                int capacity = 16;
+                while (entries > capacity * 3 / 4)
+                    capacity <<= 1;
+                bytes += array_bytes(4, capacity) + 32L * entries;
+            }
+            // 单字符 String：String 对象 + 长度为 1 的 byte[]
+            bytes += (24 + array_bytes(1, 1)) * this.keys[node].length;
+        }
+        return bytes;
+    }
+
+    private static long array_bytes(int element_size, int length) {
+        return (16L + (long) element_size * length + 7) & ~7L;
+    }
+
+    private int mutable_root() {
+        if (this.root < this.frozen)
+            this.root = copy_node(this.root);
+        return this.root;
+    }
+
+    /**
+     * node 自己必须是可以修改的
+     *
+     * @return node 的第 pos 个子节点，冻结了的话先复制一份再接到 node 上
+     */
+    private int mutable_child(int node, int pos) {
+        int child = this.children[node][pos];
+        if (child < this.frozen) {
+            child = copy_node(child);
+            this.children[node][pos] = child;
+        }
+        return child;
+    }
+
+    /**
+     * 字符数组从来不会被原地修改，可以共用；子节点数组复制一份，之后可以原地修改
+     */
+    private int copy_node(int node) {
+        int copy = new_node();
+        this.keys[copy] = this.keys[node];
+        this.children[copy] = this.children[node].length == 0 ? NO_CHILDREN : this.children[node].clone();
+        this.clean_names[copy] = this.clean_names[node];
+        this.garbage++;
+        return copy;
+    }
+
+    private void compact_if_needed() {
+        if (this.garbage < COMPACT_THRESHOLD || this.garbage < node_count())
+            return;
+
+        // 按广度优先顺序把还在用的节点搬到新的节点池里，旧的节点池留给还在用它的 snapshot
+        int[] order = CompiledTrie.bfs_order(this);
+        int[] remap = new int[this.allocated];
+        for (int i = 0; i < order.length; i++)
+            remap[order[i]] = i;
+
+        int capacity = Math.max(16, order.length + (order.length >> 1));
+        char[][] new_keys = new char[capacity][];
+        int[][] new_children = new int[capacity][];
+        String[] new_clean_names = new String[capacity];
+        for (int i = 0; i < order.length; i++) {
+            int node = order[i];
+            new_keys[i] = this.keys[node];
+            new_clean_names[i] = this.clean_names[node];
+            int[] old_children = this.children[node];
+            if (old_children.length == 0) {
+                new_children[i] = NO_CHILDREN;
+            } else {
+                new_children[i] = new int[old_children.length];
+                for (int c = 0; c < old_children.length; c++)
+                    new_children[i][c] = remap[old_children[c]];
+            }
+        }
+
+        this.keys = new_keys;
+        this.children = new_children;
+        this.clean_names = new_clean_names;
+        this.allocated = order.length;
+        this.root = 0;
+        this.frozen = 0;
+        this.garbage = 0;
+        this.free_count = 0;
+    }
+
+    private int new_node() {
+        int node;
+        if (this.free_count > 0) {
+            node = this.free_nodes[--this.free_count];
+        } else {
+            if (this.allocated == this.keys.length) {
+                int capacity = this.allocated + (this.allocated >> 1);
+                this.keys = Arrays.copyOf(this.keys, capacity);
+                this.children = Arrays.copyOf(this.children, capacity);
+                this.clean_names = Arrays.copyOf(this.clean_names, capacity);
+            }
+            node = this.allocated++;
+        }
+        this.keys[node] = NO_KEYS;
+        this.children[node] = NO_CHILDREN;
+        this.clean_names[node] = null;
+        return node;
+    }
+
+    private void free_node(int node) {
+        this.keys[node] = null;
+        this.children[node] = null;
+        this.clean_names[node] = null;
+        if (this.free_count == this.free_nodes.length)
+            this.free_nodes = Arrays.copyOf(this.free_nodes, this.free_count * 2);
+        this.free_nodes[this.free_count++] = node;
+    }
+
+    private void add_edge(int node, char ch, int child) {
+        char[] old_keys = this.keys[node];
+        int[] old_children = this.children[node];
+        int pos = -(Arrays.binarySearch(old_keys, ch) + 1);
+
+        char[] new_keys = new char[old_keys.length + 1];
+        int[] new_children = new int[old_children.length + 1];
+        System.arraycopy(old_keys, 0, new_keys, 0, pos);
+        System.arraycopy(old_children, 0, new_children, 0, pos);
+        new_keys[pos] = ch;
+        new_children[pos] = child;
+        System.arraycopy(old_keys, pos, new_keys, pos + 1, old_keys.length - pos);
+        System.arraycopy(old_children, pos, new_children, pos + 1, old_children.length - pos);
+
+        this.keys[node] = new_keys;
+        this.children[node] = new_children;
+    }
+
+    private void remove_edge(int node, char ch) {
+        char[] old_keys = this.keys[node];
+        int[] old_children = this.children[node];
+        int pos = Arrays.binarySearch(old_keys, ch);
+        if (old_keys.length == 1) {
+            this.keys[node] = NO_KEYS;
+            this.children[node] = NO_CHILDREN;
+            return;
+        }
+
+        char[] new_keys = new char[old_keys.length - 1];
+        int[] new_children = new int[old_children.length - 1];
+        System.arraycopy(old_keys, 0, new_keys, 0, pos);
+        System.arraycopy(old_children, 0, new_children, 0, pos);
+        System.arraycopy(old_keys, pos + 1, new_keys, pos, old_keys.length - pos - 1);
+        System.arraycopy(old_children, pos + 1, new_children, pos, old_children.length - pos - 1);
+
+        this.keys[node] = new_keys;
+        this.children[node] = new_children;
+    }
+
+    /**
+     * {@link #snapshot()} 返回的视图，只引用当时的节点池，里面的节点都不会再被修改
+     */
+    private static final class Snapshot implements Trie {
+        private final char[][] keys;
+        private final int[][] children;
+        private final String[] clean_names;
+        private final int root;
+        private final int terms;
+
+        Snapshot(char[][] keys, int[][] children, String[] clean_names, int root, int terms) {
+            this.keys = keys;
+            this.children = children;
+            this.clean_names = clean_names;
+            this.root = root;
+            this.terms = terms;
+        }
+
+        @Override
+        public int root() {
+            return this.root;
+        }
+
+        @Override
+        public int child(int node, char ch) {
+            int i = Arrays.binarySearch(this.keys[node], ch);
+            return i >= 0 ? this.children[node][i] : NO_NODE;
+        }
+
+        @Override
+        public String clean_name(int node) {
+            return this.clean_names[node];
+        }
+
+        @Override
+        public int child_count(int node) {
+            return this.keys[node].length;
+        }
+
+        @Override
+        public char child_key(int node, int i) {
+            return this.keys[node][i];
+        }
+
+        @Override
+        public int child_node(int node, int i) {
+            return this.children[node][i];
+        }
+
+        @Override
+        public int size() {
+            return this.terms;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package flashtext;
+
+import java.util.Arrays;
+
+/**
+ * 不可变的字典树，由 {@link #of(Trie)} 从任意 {@link Trie} 拷贝出来，可以被多个线程同时读。
+ * <p>
+ * 节点按广度优先的顺序编号，根节点是 0。因为每个非根节点都只有一条入边，按广度优先顺序依次排列的第 e 条边
+ * 指向的正好是第 e + 1 个节点，所以只需要存边上的字符，不用存边指向哪个节点：
+ * - {@link #first_edge}：节点 i 的边是 [first_edge[i], first_edge[i + 1])，按字符升序排列；
+ * - {@link #edge_keys}：每条边上的字符；
+ * - {@link #clean_names}：每个节点的 clean name。
+ * 每个节点大约只占 4 + 2 + 4 个字节。
+ */
+public final class CompiledTrie implements Trie {
+
+    private final int[] first_edge;
+    private final char[] edge_keys;
+    private final String[] clean_names;
+    private final int terms;
+
+    private CompiledTrie(int[] first_edge, char[] edge_keys, String[] clean_names, int terms) {
+        this.first_edge = first_edge;
+        this.edge_keys = edge_keys;
+        this.clean_names = clean_names;
+        this.terms = terms;
+    }
+
+    public static CompiledTrie of(Trie source) {
+        int[] order = bfs_order(source);
+        int node_count = order.length;
+
+        int[] first_edge = new int[node_count + 1];
+        char[] edge_keys = new char[node_count - 1];
+        String[] clean_names = new String[node_count];
+        int edge = 0;
+        for (int i = 0; i < node_count; i++) {
+            int node = order[i];
+            first_edge[i] = edge;
+            clean_names[i] = source.clean_name(node);
+            for (int c = 0; c < source.child_count(node); c++)
+                edge_keys[edge++] = source.child_key(node, c);
+        }
+        first_edge[node_count] = edge;
+
+        return new CompiledTrie(first_edge, edge_keys, clean_names, source.size());
+    }
+
+    /**
+     * 广度优先遍历
+     *
+     * @return 第 i 个节点在 trie 里的编号
+     */
+    static int[] bfs_order(Trie trie) {
+        int[] order = new int[16];
+        order[0] = trie.root();
+        int node_count = 1;
+        for (int i = 0; i < node_count; i++) {
+            int node = order[i];
+            int children = trie.child_count(node);
+            if (node_count + children > order.length)
+                order = Arrays.copyOf(order, Math.max(order.length * 2, node_count + children));
+            for (int c = 0; c < children; c++)
+                order[node_count++] = trie.child_node(node, c);
+        }
+        return Arrays.copyOf(order, node_count);
+    }
+
+    @Override
+    public int root() {
+        return 0;
+    }
+
+    @Override
+    public int child(int node, char ch) {
+        int edge = Arrays.binarySearch(this.edge_keys, this.first_edge[node], this.first_edge[node + 1], ch);
+        return edge >= 0 ? edge + 1 : NO_NODE;
+    }
+
+    @Override
+    public String clean_name(int node) {
+        return this.clean_names[node];
+    }
+
+    @Override
+    public int child_count(int node) {
+        return this.first_edge[node + 1] - this.first_edge[node];
+    }
+
+    @Override
+    public char child_key(int node, int i) {
+        return this.edge_keys[this.first_edge[node] + i];
+    }
+
+    @Override
+    public int child_node(int node, int i) {
+        return this.first_edge[node] + i + 1;
+    }
+
+    @Override
+    public int size() {
+        return this.terms;
+    }
+
+    public int node_count() {
+        return this.clean_names.length;
+    }
+
+    /**
+     * 估算占用的堆内存，口径和 {@link CharTrie#estimated_bytes()} 一样
+     */
+    public long estimated_bytes() {
+        return 16L + ((16L + 4L * this.first_edge.length + 7) & ~7L)
+                + ((16L + 2L * this.edge_keys.length + 7) & ~7L)
+                + ((16L + 4L * this.clean_names.length + 7) & ~7L);
+    }
+}
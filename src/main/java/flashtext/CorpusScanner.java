@@ -0,0 +1,321 @@
+package flashtext;
+
+import lombok.Data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 并行扫描很大的 UTF-8 文本文件。
+ * <p>
+ * 文件按 {@link #segment_size} 切成若干段，每段用 mmap 映射进来，边解码边用 {@link KeywordMatcher} 的规则匹配，
+ * 不会把文件拷贝到堆上。各段在 {@link ForkJoinPool} 上并行扫描，结果按在文件里的位置依次给出。
+ * <p>
+ * 切分点只选这样的 ASCII 字符：它是分界，不是被忽略的标点，也不在任何关键字里出现（比如默认配置下的换行符）。
+ * 匹配不会跨过这种字符，扫描到它之后状态也一定回到根节点，所以分段扫描和整个文件一起扫描的结果完全一样。
+ * 找不到这样的字符时整个文件只分一段。每段里的字符位置是 int，一段不能超过 {@link KeywordMatcher#MAX_STREAM_LENGTH} 个字节。
+ * <p>
+ * 返回的位置是文件里的字节位置。
+ */
+public class CorpusScanner {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    /**
+     * 找切分点的时候每次映射多少字节
+     */
+    private static final int PROBE_SIZE = 64 << 10;
+
+    private final KeywordMatcher matcher;
+    private final ForkJoinPool pool;
+    private final int segment_size;
+    /**
+     * 可以作为切分点的字节
+     */
+    private final boolean[] split_bytes;
+    private final boolean splittable;
+
+    public CorpusScanner(KeywordMatcher matcher, ForkJoinPool pool) {
+        this(matcher, pool, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public CorpusScanner(KeywordMatcher matcher, ForkJoinPool pool, int segment_size) {
+        if (segment_size <= 0)
+            throw new IllegalArgumentException("segment_size must be positive: " + segment_size);
+        this.matcher = matcher;
+        this.pool = pool;
+        this.segment_size = segment_size;
+
+        boolean[] keyword_chars = new boolean[128];
+        mark_keyword_chars(matcher.trie(), keyword_chars);
+        this.split_bytes = new boolean[128];
+        boolean splittable = false;
+        for (char b = 0; b < 128; b++) {
+            char ch = matcher.fold(b);
+            if (ch < 128 && matcher.is_boundary(ch) && !matcher.is_ignored(ch) && !keyword_chars[ch]) {
+                this.split_bytes[b] = true;
+                splittable = true;
+            }
+        }
+        this.splittable = splittable;
+    }
+
+    public List<FileMatch> scan(Path file) throws IOException {
+        List<FileMatch> matches = new ArrayList<>();
+        scan(file, matches::add);
+        return matches;
+    }
+
+    /**
+     * 扫描整个文件，匹配结果按位置顺序交给 consumer，consumer 只会在调用线程上被调用。
+     * 同时在扫描的段数不超过线程数的两倍，没交出去的结果不会无限堆积。
+     * <p>
+     * consumer 或者某一段抛出异常的时候，还没开始的段不再扫描，正在扫描的段要等它们扫完，再关闭文件，然后才把异常抛出去。
+     */
+    public void scan(Path file, Consumer<FileMatch> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int window = Math.max(2, this.pool.getParallelism() * 2);
+            ArrayDeque<ForkJoinTask<List<FileMatch>>> in_flight = new ArrayDeque<>();
+            // ForkJoinTask 的 cancel 对正在运行的任务没用，join 也不会等它，所以用自己的标记
+            AtomicBoolean stopped = new AtomicBoolean();
+            try {
+                long start = 0;
+                while (start < size) {
+                    long end = next_split(channel, start, size);
+                    long segment_start = start;
+                    in_flight.add(this.pool.submit(() -> stopped.get()
+                            ? Collections.<FileMatch>emptyList() : scan_segment(channel, segment_start, end)));
+                    if (in_flight.size() >= window)
+                        emit(in_flight.poll(), consumer);
+                    start = end;
+                }
+                while (!in_flight.isEmpty())
+                    emit(in_flight.poll(), consumer);
+            } finally {
+                // 正常结束的时候是空的。出错的时候还没开始的段不用再扫，已经在扫的要等它读完，不能关掉 channel
+                stopped.set(true);
+                for (ForkJoinTask<List<FileMatch>> task : in_flight)
+                    task.quietlyJoin();
+            }
+        }
+    }
+
+    private static void emit(ForkJoinTask<List<FileMatch>> task, Consumer<FileMatch> consumer) throws IOException {
+        try {
+            for (FileMatch match : task.get())
+                consumer.accept(match);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while scanning", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException)
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            throw new IOException("failed to scan segment", e.getCause());
+        }
+    }
+
+    /**
+     * @return 从 start 开始的这一段在哪里结束（不包含），包含末尾的切分字符
+     */
+    private long next_split(FileChannel channel, long start, long size) throws IOException {
+        long target = start + this.segment_size;
+        if (target >= size || !this.splittable)
+            return checked_end(start, size);
+
+        for (long position = target; position < size; position += PROBE_SIZE) {
+            int length = (int) Math.min(PROBE_SIZE, size - position);
+            MappedByteBuffer probe = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            for (int i = 0; i < length; i++) {
+                int b = probe.get(i);
+                if (b >= 0 && this.split_bytes[b])
+                    return checked_end(start, position + i + 1);
+            }
+        }
+        return checked_end(start, size);
+    }
+
+    /**
+     * 每段里的字符位置是 int，不超过 {@link KeywordMatcher#MAX_STREAM_LENGTH} 个字节就不会溢出
+     */
+    private static long checked_end(long start, long end) throws IOException {
+        if (end - start > KeywordMatcher.MAX_STREAM_LENGTH)
+            throw new IOException("segment starting at " + start + " is larger than "
+                    + KeywordMatcher.MAX_STREAM_LENGTH + " bytes, no split point found");
+        return end;
+    }
+
+    private List<FileMatch> scan_segment(FileChannel channel, long start, long end) {
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<FileMatch> matches = new ArrayList<>();
+        Utf8Text text = new Utf8Text(buffer);
+        this.matcher.extract_keywords(text, (clean_name, match_start, match_end) -> matches.add(
+                new FileMatch(clean_name, start + text.byte_offset(match_start), start + text.byte_offset(match_end))));
+        return matches;
+    }
+
+    private static void mark_keyword_chars(Trie trie, boolean[] keyword_chars) {
+        int[] stack = new int[16];
+        int size = 0;
+        stack[size++] = trie.root();
+        while (size > 0) {
+            int node = stack[--size];
+            for (int i = 0; i < trie.child_count(node); i++) {
+                char ch = trie.child_key(node, i);
+                if (ch < 128)
+                    keyword_chars[ch] = true;
+                if (size == stack.length)
+                    stack = Arrays.copyOf(stack, size * 2);
+                stack[size++] = trie.child_node(node, i);
+            }
+        }
+    }
+
+    @Data
+    public static class FileMatch {
+        String found;
+        long start;
+        long end;
+
+        public FileMatch(String found, long start, long end) {
+            this.found = found;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * 边解码边扫描的 UTF-8 文本，只保留一小段解码后的字符，同时记下每个字符在字节里的位置。
+     * 非法的字节解码成 U+FFFD。
+     */
+    private static final class Utf8Text extends ScanText {
+        private static final int WINDOW = 4096;
+
+        private final ByteBuffer bytes;
+        private final int limit;
+        private int byte_position;
+        private char[] chars = new char[WINDOW];
+        private int[] char_bytes = new int[WINDOW];
+        private int base;
+        private int end;
+        private int released;
+
+        Utf8Text(ByteBuffer bytes) {
+            this.bytes = bytes;
+            this.limit = bytes.limit();
+        }
+
+        @Override
+        boolean has(int index) {
+            while (index >= this.end && this.byte_position < this.limit)
+                fill();
+            return index < this.end;
+        }
+
+        @Override
+        char at(int index) {
+            return this.chars[index - this.base];
+        }
+
+        @Override
+        int length() {
+            return this.end;
+        }
+
+        @Override
+        void release(int index) {
+            if (index > this.released)
+                this.released = index;
+        }
+
+        /**
+         * @return 第 index 个字符在这一段里的字节位置，index 是文本末尾时返回总字节数
+         */
+        int byte_offset(int index) {
+            return index >= this.end ? this.limit : this.char_bytes[index - this.base];
+        }
+
+        private void fill() {
+            // 至少留出一个代理对的位置
+            if (this.end - this.base + 2 > this.chars.length) {
+                int discard = this.released - this.base;
+                if (discard > 0) {
+                    System.arraycopy(this.chars, discard, this.chars, 0, this.end - this.released);
+                    System.arraycopy(this.char_bytes, discard, this.char_bytes, 0, this.end - this.released);
+                    this.base = this.released;
+                }
+                if (this.end - this.base + 2 > this.chars.length) {
+                    this.chars = Arrays.copyOf(this.chars, this.chars.length * 2);
+                    this.char_bytes = Arrays.copyOf(this.char_bytes, this.char_bytes.length * 2);
+                }
+            }
+
+            while (this.end - this.base + 2 <= this.chars.length && this.byte_position < this.limit)
+                decode_one();
+        }
+
+        private void decode_one() {
+            int position = this.byte_position;
+            int b0 = this.bytes.get(position) & 0xff;
+            int code_point;
+            int length;
+            if (b0 < 0x80) {
+                code_point = b0;
+                length = 1;
+            } else if (b0 >= 0xc2 && b0 < 0xe0 && continuation(position + 1)) {
+                code_point = (b0 & 0x1f) << 6 | (this.bytes.get(position + 1) & 0x3f);
+                length = 2;
+            } else if (b0 >= 0xe0 && b0 < 0xf0 && continuation(position + 1) && continuation(position + 2)) {
+                code_point = (b0 & 0x0f) << 12 | (this.bytes.get(position + 1) & 0x3f) << 6
+                        | (this.bytes.get(position + 2) & 0x3f);
+                length = 3;
+            } else if (b0 >= 0xf0 && b0 < 0xf5 && continuation(position + 1) && continuation(position + 2)
+                    && continuation(position + 3)) {
+                code_point = (b0 & 0x07) << 18 | (this.bytes.get(position + 1) & 0x3f) << 12
+                        | (this.bytes.get(position + 2) & 0x3f) << 6 | (this.bytes.get(position + 3) & 0x3f);
+                length = 4;
+            } else {
+                code_point = 0xfffd;
+                length = 1;
+            }
+
+            if (Character.isSupplementaryCodePoint(code_point)) {
+                append(Character.highSurrogate(code_point), position);
+                append(Character.lowSurrogate(code_point), position);
+            } else {
+                append((char) code_point, position);
+            }
+            this.byte_position = position + length;
+        }
+
+        private boolean continuation(int position) {
+            return position < this.limit && (this.bytes.get(position) & 0xc0) == 0x80;
+        }
+
+        private void append(char ch, int position) {
+            this.chars[this.end - this.base] = ch;
+            this.char_bytes[this.end - this.base] = position;
+            this.end++;
+        }
+    }
+}
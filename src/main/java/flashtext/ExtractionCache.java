@@ -0,0 +1,225 @@
+package flashtext;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 放在 {@link KeywordProcessor#extract_keywords(String)} 前面的结果缓存，适合大量重复文本的场景，比如标题、模板消息。
+ * 按文本内容缓存，按最近最少使用淘汰，总大小不超过 max_bytes（估算值）。
+ * <p>
+ * 缓存里的结果都是同一个快照算出来的，只有拿着这个快照来查才会命中。字典或配置一改，发布出来的是版本号 {@link KeywordMatcher#version()}
+ * 更大的新快照，旧的结果立刻全部作废，不会返回过期的匹配。命中缓存的查询不会通知 {@link KeywordProcessor#scan_listener}。
+ * <p>
+ * 版本号是每个 processor 自己数的，一个缓存只给一个 processor 用。几个 processor 共用一个缓存也不会拿到别的字典的结果，
+ * 但是版本号小的快照查不到缓存也放不进去，缓存基本不起作用。
+ * <p>
+ * 可以被多个线程同时使用，扫描在锁外面进行。
+ */
+public class ExtractionCache {
+
+    /**
+     * 每个条目除了文本和结果之外的开销：HashMap 的 entry、链表指针、Entry 对象
+     */
+    private static final long ENTRY_OVERHEAD = 96;
+    /**
+     * 每个匹配结果的开销：对象头加三个字段，clean name 是字典里的，不算
+     */
+    private static final long RESULT_BYTES = 32;
+
+    private final long max_bytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * 按访问顺序排列，最久没用的在最前面
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * 缓存里的结果都是这个快照算出来的，version 是它的版本号，持有 lock 的时候才能改
+     */
+    private KeywordMatcher matcher;
+    private long version = Long.MIN_VALUE;
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * @param max_bytes 缓存总大小的上限，按文本和结果估算。单个超过上限的结果不缓存
+     */
+    public ExtractionCache(long max_bytes) {
+        this.max_bytes = max_bytes;
+    }
+
+    /**
+     * 命中缓存就返回缓存的结果，否则用 matcher 匹配再放进缓存。返回的 List 和里面的 MatchResult 都是新建的，可以随便改
+     */
+    public List<KeywordProcessor.MatchResult> extract_keywords(KeywordMatcher matcher, String sentence) {
+        List<KeywordProcessor.MatchResult> cached = get(matcher, sentence);
+        if (cached == null) {
+            cached = matcher.extract_keywords(sentence);
+            put(matcher, sentence, cached);
+        }
+
+        List<KeywordProcessor.MatchResult> keywords_extracted = new ArrayList<>(cached.size());
+        for (KeywordProcessor.MatchResult result : cached)
+            keywords_extracted.add(new KeywordProcessor.MatchResult(result.getFound(), result.getStart(), result.getEnd()));
+        return keywords_extracted;
+    }
+
+    private List<KeywordProcessor.MatchResult> get(KeywordMatcher matcher, String sentence) {
+        this.lock.lock();
+        try {
+            Entry entry = adopt(matcher) ? this.entries.get(sentence) : null;
+            if (entry == null) {
+                this.misses.increment();
+                return null;
+            }
+            this.hits.increment();
+            return entry.results;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void put(KeywordMatcher matcher, String sentence, List<KeywordProcessor.MatchResult> results) {
+        long size = ENTRY_OVERHEAD + 40 + 2L * sentence.length() + 24 + 4L * results.size() + RESULT_BYTES * results.size();
+        if (size > this.max_bytes)
+            return;
+
+        this.lock.lock();
+        try {
+            // 拿着旧快照的线程算出来的结果不放进去
+            if (!adopt(matcher))
+                return;
+
+            Entry previous = this.entries.put(sentence, new Entry(results, size));
+            if (previous != null)
+                this.bytes -= previous.bytes;
+            this.bytes += size;
+
+            Iterator<Entry> eldest = this.entries.values().iterator();
+            while (this.bytes > this.max_bytes) {
+                this.bytes -= eldest.next().bytes;
+                eldest.remove();
+                this.evictions.increment();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * 看到更新的快照就把旧的结果全部扔掉。调用方要持有 lock
+     *
+     * @return 缓存里的结果是不是 matcher 算出来的。旧快照和版本号不比现在大的别的快照返回 false，不能用缓存
+     */
+    private boolean adopt(KeywordMatcher matcher) {
+        if (matcher == this.matcher)
+            return true;
+        if (matcher.version() <= this.version)
+            return false;
+        if (!this.entries.isEmpty()) {
+            this.invalidations.add(this.entries.size());
+            this.entries.clear();
+            this.bytes = 0;
+        }
+        this.matcher = matcher;
+        this.version = matcher.version();
+        return true;
+    }
+
+    public void clear() {
+        this.lock.lock();
+        try {
+            this.entries.clear();
+            this.bytes = 0;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return 缓存的条目数
+     */
+    public int size() {
+        this.lock.lock();
+        try {
+            return this.entries.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @return 缓存占用的字节数，估算值
+     */
+    public long bytes() {
+        this.lock.lock();
+        try {
+            return this.bytes;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    public long max_bytes() {
+        return this.max_bytes;
+    }
+
+    public long hits() {
+        return this.hits.sum();
+    }
+
+    public long misses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * @return 命中次数占查询次数的比例，还没有查询时是 0
+     */
+    public double hit_rate() {
+        long hits = this.hits.sum();
+        long total = hits + this.misses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * @return 因为超过 max_bytes 被淘汰的条目数
+     */
+    public long evictions() {
+        return this.evictions.sum();
+    }
+
+    /**
+     * @return 因为字典或配置改了而作废的条目数
+     */
+    public long invalidations() {
+        return this.invalidations.sum();
+    }
+
+    /**
+     * 清空统计数字，缓存的内容不变
+     */
+    public void reset_stats() {
+        this.hits.reset();
+        this.misses.reset();
+        this.evictions.reset();
+        this.invalidations.reset();
+    }
+
+    private static final class Entry {
+        final List<KeywordProcessor.MatchResult> results;
+        final long bytes;
+
+        Entry(List<KeywordProcessor.MatchResult> results, long bytes) {
+            this.results = results;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package flashtext;
+
+/**
+ * 字典里所有关键字的第一个字符（转过大小写之后），是一张覆盖整个 BMP 的位图。
+ * <p>
+ * 匹配停在根节点上的时候，碰到不在这里面的字符只会重置，不用再去字典树的根节点上查子节点，
+ * 见 {@link KeywordMatcher#extract_keywords(Trie, ScanText, MatchConsumer, int)}。
+ * 根节点的子节点越多、文本里能开头的字符越少，省下来的越多，比如小字典配上中文文本。
+ * <p>
+ * 不可变，可以被多个线程同时使用。
+ */
+final class FirstCharFilter {
+
+    private final long[] first_chars = new long[(Character.MAX_VALUE + 1) / 64];
+
+    private FirstCharFilter(Trie trie) {
+        int root = trie.root();
+        for (int i = 0; i < trie.child_count(root); i++) {
+            char ch = trie.child_key(root, i);
+            this.first_chars[ch >>> 6] |= 1L << ch;
+        }
+    }
+
+    /**
+     * @return 字典的根节点本身是关键字的时候每个分界都会匹配到，不能跳过任何字符，返回 null
+     */
+    static FirstCharFilter of(Trie trie) {
+        return trie.is_keyword(trie.root()) ? null : new FirstCharFilter(trie);
+    }
+
+    /**
+     * @return 有没有关键字以 ch 开头
+     */
+    boolean may_start(char ch) {
+        return (this.first_chars[ch >>> 6] & (1L << ch)) != 0;
+    }
+}
@@ -0,0 +1,270 @@
+package flashtext;
+
+import lombok.Data;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 允许拼写错误的匹配：找编辑距离（Levenshtein 距离）不超过 max_cost 的关键字。
+ * <p>
+ * 不生成拼错的变体，而是沿着字典树深度优先往下走，每个节点算一行编辑距离：
+ * 第 j 列是从根到这个节点的关键字前缀和文本前 j 个字符的编辑距离，子节点的那一行只依赖父节点的那一行。
+ * 一行里的最小值已经超过 max_cost 的时候，往下走只会更大，整棵子树都跳过。
+ * <p>
+ * 和精确匹配一样忽略 {@link KeywordMatcher#char_classifier()} 里的特殊字符、按 case_sensitive 转小写。
+ * 在句子里匹配的时候只从单词开头开始，匹配到的那一段后面必须是分界或者句子结尾，所以没有分界的中文文本匹配不到。
+ * <p>
+ * 不可变，可以被多个线程同时使用。
+ */
+public final class FuzzyMatcher {
+
+    /**
+     * 斜带外面的列
+     */
+    private static final int OUT_OF_BAND = Integer.MAX_VALUE / 2;
+
+    private final KeywordMatcher matcher;
+    private final Trie trie;
+    /**
+     * 最长的关键字有多少个字符
+     */
+    private final int max_depth;
+
+    private FuzzyMatcher(KeywordMatcher matcher, int max_depth) {
+        this.matcher = matcher;
+        this.trie = matcher.trie();
+        this.max_depth = max_depth;
+    }
+
+    static FuzzyMatcher of(KeywordMatcher matcher) {
+        Trie trie = matcher.trie();
+        int max_depth = 0;
+        int[] nodes = new int[16];
+        int[] depths = new int[16];
+        int size = 0;
+        nodes[size] = trie.root();
+        depths[size++] = 0;
+        while (size > 0) {
+            int node = nodes[--size];
+            int depth = depths[size];
+            max_depth = Math.max(max_depth, depth);
+            for (int i = 0; i < trie.child_count(node); i++) {
+                if (size == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, size * 2);
+                    depths = Arrays.copyOf(depths, size * 2);
+                }
+                nodes[size] = trie.child_node(node, i);
+                depths[size++] = depth + 1;
+            }
+        }
+        return new FuzzyMatcher(matcher, max_depth);
+    }
+
+    /**
+     * @return 和整个 word 的编辑距离不超过 max_cost 的关键字的 clean name 和距离，按距离从小到大排列，
+     * 多个关键字对应同一个 clean name 时取最小的距离
+     */
+    public Map<String, Integer> get_fuzzy_keywords(String word, int max_cost) {
+        check_cost(max_cost);
+        Search search = new Search(max_cost, this.max_depth, word.length());
+        search.load(word, 0, Integer.MAX_VALUE);
+
+        List<Map.Entry<String, Integer>> found = new ArrayList<>();
+        search.walk(this.trie.root(), 0, (clean_name, row, depth) -> {
+            if (Math.abs(search.columns - depth) <= max_cost && row[search.columns] <= max_cost)
+                found.add(new AbstractMap.SimpleEntry<>(clean_name, row[search.columns]));
+        });
+        found.sort(Comparator.comparing(Map.Entry<String, Integer>::getValue).thenComparing(Map.Entry::getKey));
+
+        Map<String, Integer> keywords = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : found)
+            keywords.putIfAbsent(entry.getKey(), entry.getValue());
+        return keywords;
+    }
+
+    /**
+     * 在句子里找编辑距离不超过 max_cost 的关键字。从左往右在每个单词开头尝试，取距离最小的，距离一样取最长的，
+     * 匹配之间不重叠。max_cost 为 0 的时候相当于只在单词上做精确匹配。
+     */
+    public List<FuzzyMatch> extract_keywords(CharSequence sentence, int max_cost) {
+        check_cost(max_cost);
+        List<FuzzyMatch> matches = new ArrayList<>();
+        Search search = new Search(max_cost, this.max_depth, this.max_depth + max_cost);
+
+        boolean word_start = true;
+        int idx = 0;
+        while (idx < sentence.length()) {
+            char ch = this.matcher.fold(sentence.charAt(idx));
+            if (this.matcher.is_ignored(ch)) {
+                idx++;
+                continue;
+            }
+            if (this.matcher.is_boundary(ch)) {
+                word_start = true;
+                idx++;
+                continue;
+            }
+            if (!word_start) {
+                idx++;
+                continue;
+            }
+
+            word_start = false;
+            search.load(sentence, idx, this.max_depth + max_cost);
+            search.best_cost = Integer.MAX_VALUE;
+            search.walk(this.trie.root(), 0, (clean_name, row, depth) -> {
+                // 只看匹配到单词结尾的那些列
+                for (int j = Math.max(1, depth - max_cost); j <= Math.min(search.columns, depth + max_cost); j++) {
+                    int cost = row[j];
+                    if (cost > max_cost || !search.word_end[j])
+                        continue;
+                    if (cost < search.best_cost || (cost == search.best_cost && j > search.best_column)) {
+                        search.best_cost = cost;
+                        search.best_column = j;
+                        search.best_name = clean_name;
+                    }
+                }
+            });
+
+            if (search.best_cost <= max_cost) {
+                int end = search.positions[search.best_column - 1] + 1;
+                matches.add(new FuzzyMatch(search.best_name, idx, end, search.best_cost));
+                idx = end;
+            } else {
+                idx++;
+            }
+        }
+        return matches;
+    }
+
+    private static void check_cost(int max_cost) {
+        if (max_cost < 0)
+            throw new IllegalArgumentException("max_cost must not be negative: " + max_cost);
+    }
+
+    private interface Candidate {
+        /**
+         * @param row 这个关键字和文本前 j 个字符的编辑距离，只有 [depth - max_cost, depth + max_cost] 这些列有效
+         */
+        void accept(String clean_name, int[] row, int depth);
+    }
+
+    /**
+     * 一次查找用的临时数据，每层一行，整个查找过程中不再分配。
+     * <p>
+     * 深度为 d 的那一行，第 j 列的编辑距离至少是 |d - j|，所以只算 [d - max_cost, d + max_cost] 这一条斜带，
+     * 带外的都当作超过了 max_cost，每个节点的开销只和 max_cost 有关，和文本多长无关。
+     */
+    private final class Search {
+        final int max_cost;
+        /**
+         * 去掉标点、转过大小写的文本，以及每个字符在原文里的位置
+         */
+        final char[] chars;
+        final int[] positions;
+        /**
+         * 第 j 列（文本前 j 个字符）是不是落在单词结尾
+         */
+        final boolean[] word_end;
+        int columns;
+        final int[][] rows;
+
+        int best_cost;
+        int best_column;
+        String best_name;
+
+        Search(int max_cost, int max_depth, int max_columns) {
+            this.max_cost = max_cost;
+            this.chars = new char[max_columns];
+            this.positions = new int[max_columns];
+            this.word_end = new boolean[max_columns + 1];
+            this.rows = new int[max_depth + 1][max_columns + 1];
+        }
+
+        /**
+         * 从 sentence 的 start 开始取最多 limit 个有效字符作为列
+         */
+        void load(CharSequence sentence, int start, int limit) {
+            int count = 0;
+            int idx = start;
+            for (; idx < sentence.length() && count < limit && count < this.chars.length; idx++) {
+                char ch = FuzzyMatcher.this.matcher.fold(sentence.charAt(idx));
+                if (FuzzyMatcher.this.matcher.is_ignored(ch))
+                    continue;
+                this.chars[count] = ch;
+                this.positions[count] = idx;
+                count++;
+            }
+            this.columns = count;
+
+            // 第 j 个字符后面跳过标点之后是分界或者句子结尾，前 j 个字符才算一个完整的单词
+            for (int j = 1; j <= count; j++) {
+                int next = this.positions[j - 1] + 1;
+                while (next < sentence.length()
+                        && FuzzyMatcher.this.matcher.is_ignored(FuzzyMatcher.this.matcher.fold(sentence.charAt(next))))
+                    next++;
+                this.word_end[j] = next >= sentence.length()
+                        || FuzzyMatcher.this.matcher.is_boundary(FuzzyMatcher.this.matcher.fold(sentence.charAt(next)));
+            }
+
+            int[] first = this.rows[0];
+            for (int j = 0; j <= count; j++)
+                first[j] = j;
+        }
+
+        void walk(int node, int depth, Candidate candidate) {
+            int[] row = this.rows[depth];
+            // 根节点对应空的关键字，不算
+            if (depth > 0 && FuzzyMatcher.this.trie.is_keyword(node))
+                candidate.accept(FuzzyMatcher.this.trie.clean_name(node), row, depth);
+            if (depth + 1 >= this.rows.length)
+                return;
+
+            Trie trie = FuzzyMatcher.this.trie;
+            int[] next = this.rows[depth + 1];
+            int low = Math.max(1, depth + 1 - this.max_cost);
+            int high = Math.min(this.columns, depth + 1 + this.max_cost);
+            for (int i = 0; i < trie.child_count(node); i++) {
+                char ch = trie.child_key(node, i);
+                next[0] = depth + 1;
+                int min = next[0];
+                int left = low == 1 ? next[0] : OUT_OF_BAND;
+                for (int j = low; j <= high; j++) {
+                    // 上一行的带是 [depth - max_cost, depth + max_cost]，row[j - 1] 一定在带里
+                    int up = j <= depth + this.max_cost ? row[j] : OUT_OF_BAND;
+                    int cost = Math.min(Math.min(left, up) + 1, row[j - 1] + (this.chars[j - 1] == ch ? 0 : 1));
+                    next[j] = cost;
+                    left = cost;
+                    min = Math.min(min, cost);
+                }
+                // 这一行已经都超过了，子树里只会更大
+                if (min <= this.max_cost)
+                    walk(trie.child_node(node, i), depth + 1, candidate);
+            }
+        }
+    }
+
+    @Data
+    public static class FuzzyMatch {
+        String found;
+        int start;
+        int end;
+        /**
+         * 编辑距离
+         */
+        int cost;
+
+        public FuzzyMatch(String found, int start, int end, int cost) {
+            this.found = found;
+            this.start = start;
+            this.end = end;
+            this.cost = cost;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package flashtext;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * 按字符顺序依次列出某个前缀下的所有关键字，key 是关键字，value 是 clean name。
+ * <p>
+ * 用显式的栈深度优先遍历，不递归，也不会先把结果收集起来：每次 {@link #next()} 只往下走到下一个关键字为止，
+ * 只有关键字本身和返回的 entry 会分配对象，适合自动补全取前几个，也适合把很大的字典导出去。
+ * <p>
+ * 遍历的是创建时的那份快照，之后字典怎么改都不影响。不是线程安全的，一个线程用一个。
+ */
+public final class KeywordCursor implements Iterator<Map.Entry<String, String>> {
+
+    private final Trie trie;
+    /**
+     * 当前路径上的字符，也就是当前节点对应的关键字
+     */
+    private final StringBuilder term;
+    /**
+     * 栈里每一层的节点，以及下一个要访问的子节点。-1 表示节点本身还没看过
+     */
+    private int[] nodes = new int[16];
+    private int[] next_children = new int[16];
+    private int depth;
+    private int remaining;
+    private Map.Entry<String, String> pending;
+
+    /**
+     * @param prefix 已经转好大小写的前缀
+     * @param limit  最多列出多少个
+     */
+    KeywordCursor(Trie trie, String prefix, int limit) {
+        this.trie = trie;
+        this.term = new StringBuilder(prefix);
+        this.remaining = limit;
+
+        int node = trie.root();
+        for (int i = 0; i < prefix.length() && node != Trie.NO_NODE; i++)
+            node = trie.child(node, prefix.charAt(i));
+        this.depth = node == Trie.NO_NODE || limit <= 0 ? -1 : 0;
+        this.nodes[0] = node;
+        this.next_children[0] = -1;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (this.pending == null && this.remaining > 0)
+            this.pending = advance();
+        return this.pending != null;
+    }
+
+    @Override
+    public Map.Entry<String, String> next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        Map.Entry<String, String> entry = this.pending;
+        this.pending = null;
+        this.remaining--;
+        return entry;
+    }
+
+    private Map.Entry<String, String> advance() {
+        while (this.depth >= 0) {
+            int node = this.nodes[this.depth];
+            int next_child = this.next_children[this.depth];
+            if (next_child < 0) {
+                this.next_children[this.depth] = 0;
+                if (this.trie.is_keyword(node))
+                    return new AbstractMap.SimpleImmutableEntry<>(this.term.toString(), this.trie.clean_name(node));
+            } else if (next_child < this.trie.child_count(node)) {
+                this.next_children[this.depth] = next_child + 1;
+                this.term.append(this.trie.child_key(node, next_child));
+                push(this.trie.child_node(node, next_child));
+            } else {
+                // 根节点对应的是前缀本身，不能删掉前缀的最后一个字符
+                if (this.depth > 0)
+                    this.term.setLength(this.term.length() - 1);
+                this.depth--;
+            }
+        }
+        return null;
+    }
+
+    private void push(int node) {
+        this.depth++;
+        if (this.depth == this.nodes.length) {
+            this.nodes = Arrays.copyOf(this.nodes, this.depth * 2);
+            this.next_children = Arrays.copyOf(this.next_children, this.depth * 2);
+        }
+        this.nodes[this.depth] = node;
+        this.next_children[this.depth] = -1;
+    }
+}
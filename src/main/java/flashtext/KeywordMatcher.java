@@ -0,0 +1,924 @@
+package flashtext;
+
+import org.apache.commons.lang3.CharUtils;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 编译好的不可变关键字匹配器，由 {@link KeywordProcessor#compile()} 生成。
+ * <p>
+ * 字典和匹配配置在生成的时候就固定下来了，之后不会再变，所以可以被任意多个线程同时使用，不需要加锁。
+ */
+public final class KeywordMatcher {
+
+    /**
+     * 默认忽略的特殊字符，见 {@link CharClassifier#DEFAULT}。
+     * TODO: 木有空格
+     */
+    static final String PUNCTUATIONS = "[!\"#$%&'()*+,-./:;<=>?@\\^_`{|}~]*";
+
+    /**
+     * 流式匹配时每次读多少个字符
+     */
+    public static final int STREAM_BUFFER_SIZE = 8192;
+
+    /**
+     * 流式匹配最多能读多少个字符。位置都是 int，超过这个长度就没法报告正确的位置了，
+     * 读到这里还没结束的话抛出 IOException，不会算出错的位置
+     */
+    public static final int MAX_STREAM_LENGTH = Integer.MAX_VALUE - 8;
+
+    /**
+     * 批量匹配时每个核分几片，片多一点可以让长短不一的文本分得更均匀
+     */
+    private static final int BATCH_SLICES_PER_CORE = 4;
+
+    /**
+     * 匹配 Stream 的时候每次从里面取多少段文本，一批匹配完了才取下一批
+     */
+    public static final int STREAM_BATCH_SIZE = 1024;
+
+    private final Trie trie;
+    private final boolean case_sensitive;
+    private final List<String> word_boundaries;
+    /**
+     * 同一个 {@link KeywordProcessor} 每发布一份快照加一
+     */
+    private final long version;
+    private final ScanListener listener;
+    private final CharClassifier char_classifier;
+    /**
+     * char_classifier 再加上 word_boundaries 里的单个字符，匹配的时候只会拿单个字符去比
+     */
+    private final CharClassifier classifier;
+    private final boolean prefilter;
+    /**
+     * 关键字的首字符，没有开 prefilter 的时候是 null
+     */
+    private final FirstCharFilter first_chars;
+    private final boolean quick_reject;
+    /**
+     * 整篇文本的快速排除，没有开 quick_reject 的时候是 null
+     */
+    private final NgramSignature signature;
+    /**
+     * 第一次用到的时候才建，多个线程同时建也没关系，结果都一样
+     */
+    private volatile AhoCorasickMatcher aho_corasick;
+    private volatile FuzzyMatcher fuzzy;
+    private volatile TokenTrieMatcher token_trie;
+
+    KeywordMatcher(Trie trie, boolean case_sensitive, List<String> word_boundaries) {
+        this(trie, case_sensitive, word_boundaries, 0, ScanListener.NONE, CharClassifier.DEFAULT, true, false);
+    }
+
+    KeywordMatcher(Trie trie, boolean case_sensitive, List<String> word_boundaries, long version, ScanListener listener,
+                   CharClassifier char_classifier, boolean prefilter, boolean quick_reject) {
+        this.trie = trie;
+        this.case_sensitive = case_sensitive;
+        this.version = version;
+        this.listener = listener;
+        this.word_boundaries = Collections.unmodifiableList(new ArrayList<>(word_boundaries));
+        this.char_classifier = char_classifier;
+        this.classifier = char_classifier.with_boundaries(this.word_boundaries);
+        this.prefilter = prefilter;
+        this.first_chars = prefilter ? FirstCharFilter.of(trie) : null;
+        this.quick_reject = quick_reject;
+        this.signature = quick_reject ? NgramSignature.of(trie) : null;
+    }
+
+    public Trie trie() {
+        return this.trie;
+    }
+
+    public boolean case_sensitive() {
+        return this.case_sensitive;
+    }
+
+    public List<String> word_boundaries() {
+        return this.word_boundaries;
+    }
+
+    /**
+     * @return 快照的版本号，同一个 {@link KeywordProcessor} 后发布的快照版本号一定更大。{@link #load(Path)} 加载的是 0
+     */
+    public long version() {
+        return this.version;
+    }
+
+    public ScanListener listener() {
+        return this.listener;
+    }
+
+    /**
+     * @return 忽略哪些字符、哪些字符是分界，不包括 word_boundaries，见 {@link KeywordProcessor#char_classifier}
+     */
+    public CharClassifier char_classifier() {
+        return this.char_classifier;
+    }
+
+    /**
+     * @return 停在根节点上的时候是不是先用关键字的首字符过滤，见 {@link KeywordProcessor#prefilter}
+     */
+    public boolean prefilter() {
+        return this.prefilter;
+    }
+
+    /**
+     * @return 匹配一段文本之前是不是先用关键字的前缀整篇排除，见 {@link KeywordProcessor#quick_reject}
+     */
+    public boolean quick_reject() {
+        return this.quick_reject;
+    }
+
+    /**
+     * @return 同样的字典和配置，但是扫描过程通知给 listener 的快照，比如给 {@link #load(Path)} 加载的快照挂上监听器
+     */
+    public KeywordMatcher with_listener(ScanListener listener) {
+        return new KeywordMatcher(this.trie, this.case_sensitive, this.word_boundaries, this.version, listener,
+                this.char_classifier, this.prefilter, this.quick_reject);
+    }
+
+    /**
+     * @return 同样的字典和配置，但是按 char_classifier 判断忽略的字符和分界。
+     * {@link #save(Path)} 不保存 char_classifier，{@link #load(Path)} 加载之后用它重新设上
+     */
+    public KeywordMatcher with_char_classifier(CharClassifier char_classifier) {
+        return new KeywordMatcher(this.trie, this.case_sensitive, this.word_boundaries, this.version, this.listener,
+                char_classifier, this.prefilter, this.quick_reject);
+    }
+
+    /**
+     * 同一份字典上的 Aho-Corasick 自动机，用于没有单词分界的文本，见 {@link AhoCorasickMatcher}。
+     * 要把字典树拷到堆上再建，堆外的快照不支持，见 {@link #off_heap()}
+     */
+    public AhoCorasickMatcher aho_corasick() {
+        AhoCorasickMatcher current = this.aho_corasick;
+        if (current == null) {
+            current = AhoCorasickMatcher.of(this);
+            this.aho_corasick = current;
+        }
+        return current;
+    }
+
+    /**
+     * 允许拼写错误的匹配，见 {@link FuzzyMatcher}。第一次用到的时候要遍历一遍字典树，之后缓存起来
+     */
+    public FuzzyMatcher fuzzy() {
+        FuzzyMatcher current = this.fuzzy;
+        if (current == null) {
+            current = FuzzyMatcher.of(this);
+            this.fuzzy = current;
+        }
+        return current;
+    }
+
+    /**
+     * 同一份字典按词建的字典树，用于英文这种多个单词组成一个关键字的字典，见 {@link TokenTrieMatcher}。
+     * 第一次用到的时候要遍历一遍字典树，之后缓存起来。建出来的字典树在堆上，堆外的快照不支持，见 {@link #off_heap()}
+     */
+    public TokenTrieMatcher token_trie() {
+        TokenTrieMatcher current = this.token_trie;
+        if (current == null) {
+            current = TokenTrieMatcher.of(this);
+            this.token_trie = current;
+        }
+        return current;
+    }
+
+    public int size() {
+        return this.trie.size();
+    }
+
+    /**
+     * 把字典和配置存成二进制文件，格式见 {@link TrieFile}。char_classifier 不保存
+     */
+    public void save(Path file) throws IOException {
+        TrieFile.write(this, file);
+    }
+
+    /**
+     * 见 {@link #build(Stream, boolean, List, Executor)}，在 {@link ForkJoinPool#commonPool()} 上并行建
+     */
+    public static KeywordMatcher build(Collection<? extends Map.Entry<String, String>> keywords, boolean case_sensitive,
+                                       List<String> word_boundaries) {
+        return build(keywords.stream(), case_sensitive, word_boundaries, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 见 {@link #build(Stream, boolean, List, Executor)}，在 {@link ForkJoinPool#commonPool()} 上并行建
+     */
+    public static KeywordMatcher build(Stream<? extends Map.Entry<String, String>> keywords, boolean case_sensitive,
+                                       List<String> word_boundaries) {
+        return build(keywords, case_sensitive, word_boundaries, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 不经过 {@link KeywordProcessor#add_keyword(String, String)}，一次性把大量关键字建成字典：
+     * 先排序，再自底向上建成 {@link PackedTrie}，后缀相同、clean name 也相同的子树只存一份，
+     * 不同首字符的子树交给 executor 并行建。适合离线建好字典再 {@link #save(Path)}，
+     * 或者用 {@link KeywordProcessor#swap(KeywordMatcher)} 热加载到 processor 里。
+     * <p>
+     * 每一对是关键字和 clean name，规则和 add_keyword 一样：clean name 为空时用关键字本身，
+     * 同一个关键字出现多次时以最后一次为准。空的关键字会被忽略。
+     */
+    public static KeywordMatcher build(Stream<? extends Map.Entry<String, String>> keywords, boolean case_sensitive,
+                                       List<String> word_boundaries, Executor executor) {
+        String[][] pairs = keywords
+                .filter(pair -> !pair.getKey().isEmpty())
+                .map(pair -> {
+                    String keyword = pair.getKey();
+                    String clean_name = pair.getValue() == null || pair.getValue().isEmpty() ? keyword : pair.getValue();
+                    return new String[]{case_sensitive ? keyword : CaseFolding.fold(keyword), clean_name};
+                })
+                .toArray(String[][]::new);
+        return new KeywordMatcher(PackedTrie.build(pairs, executor), case_sensitive, word_boundaries);
+    }
+
+    /**
+     * 加载 {@link #save(Path)} 存下来的文件。文件被映射进内存，匹配的时候直接读映射的缓冲区，
+     * 加载的耗时基本只有校验 CRC32 的时间。文件损坏、版本不对的时候抛出 IOException。
+     * <p>
+     * 加载的快照和 {@link #off_heap()} 一样，{@link #aho_corasick()} 和 {@link #token_trie()} 不能用。
+     */
+    public static KeywordMatcher load(Path file) throws IOException {
+        return load(file, true);
+    }
+
+    /**
+     * @param cache_clean_names 解码过的 clean name 是否缓存在堆上。字典特别大的时候可以不缓存，堆占用就和字典大小无关，
+     *                          代价是每次匹配到关键字都要重新解码
+     */
+    public static KeywordMatcher load(Path file, boolean cache_clean_names) throws IOException {
+        return TrieFile.load(file, cache_clean_names);
+    }
+
+    /**
+     * @return 同样的字典和配置，但是字典树和 clean name 都放在堆外的 direct buffer 里，见 {@link MappedTrie}。
+     * 匹配的时候直接读 direct buffer，clean name 不在堆上缓存。最大 2GB。
+     * 建这个快照的字典本身不受影响，还在堆上；想让堆不随字典变大，用 {@link #save(Path)} 和 {@link #load(Path, boolean)}
+     * <p>
+     * {@link #aho_corasick()} 和 {@link #token_trie()} 都要在堆上另建一份和字典一样大的结构，
+     * 正是堆外要避免的，所以这样的快照上调用它们会抛出 UnsupportedOperationException。要用的话用堆上的快照。
+     */
+    public KeywordMatcher off_heap() {
+        return new KeywordMatcher(TrieFile.off_heap(this).trie(), this.case_sensitive, this.word_boundaries,
+                this.version, this.listener, this.char_classifier, this.prefilter, this.quick_reject);
+    }
+
+    /**
+     * 要在堆上另建一份字典的匹配引擎调用，字典树在堆外或者映射的文件里的时候抛出 UnsupportedOperationException
+     */
+    void require_on_heap(String engine) {
+        if (this.trie instanceof MappedTrie)
+            throw new UnsupportedOperationException(engine + " would copy the off-heap dictionary onto the heap, use an on-heap snapshot");
+    }
+
+    /**
+     * 见 {@link KeywordProcessor#get_keyword(String)}
+     */
+    public boolean contains(String word) {
+        return get_keyword(word) != null;
+    }
+
+    /**
+     * 见 {@link KeywordProcessor#get_keyword(String)}
+     */
+    public String get_keyword(String word) {
+        int current_node = this.trie.root();
+        for (int i = 0; i < word.length() && current_node != Trie.NO_NODE; i++)
+            current_node = this.trie.child(current_node, fold(word.charAt(i)));
+
+        return current_node != Trie.NO_NODE ? this.trie.clean_name(current_node) : null;
+    }
+
+    /**
+     * 见 {@link KeywordProcessor#get_all_keywords()}
+     */
+    public Map<String, String> get_all_keywords() {
+        Map<String, String> terms_present = new HashMap<>();
+        for (KeywordCursor cursor = keywords(""); cursor.hasNext(); ) {
+            Map.Entry<String, String> entry = cursor.next();
+            terms_present.put(entry.getKey(), entry.getValue());
+        }
+        return terms_present;
+    }
+
+    /**
+     * 见 {@link KeywordProcessor#get_keywords_with_prefix(String, int)}
+     */
+    public Map<String, String> get_keywords_with_prefix(String prefix, int limit) {
+        Map<String, String> terms_present = new LinkedHashMap<>();
+        for (KeywordCursor cursor = keywords(prefix, limit); cursor.hasNext(); ) {
+            Map.Entry<String, String> entry = cursor.next();
+            terms_present.put(entry.getKey(), entry.getValue());
+        }
+        return terms_present;
+    }
+
+    /**
+     * @return 按字符顺序逐个列出以 prefix 开头的关键字，prefix 是空串时列出整个字典
+     */
+    public KeywordCursor keywords(String prefix) {
+        return keywords(prefix, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param limit 最多列出多少个
+     */
+    public KeywordCursor keywords(String prefix, int limit) {
+        return new KeywordCursor(this.trie, this.case_sensitive ? prefix : CaseFolding.fold(prefix), limit);
+    }
+
+    /**
+     * 见 {@link KeywordProcessor#extract_keywords(String)}
+     */
+    public List<KeywordProcessor.MatchResult> extract_keywords(String sentence) {
+        List<KeywordProcessor.MatchResult> keywords_extracted = new ArrayList<>();
+        extract_keywords(sentence, (clean_name, start, end) ->
+                keywords_extracted.add(new KeywordProcessor.MatchResult(clean_name, start, end)));
+        return keywords_extracted;
+    }
+
+    /**
+     * 和 {@link #extract_keywords(String)} 的匹配规则一样，但是匹配结果通过回调给出，扫描过程中不创建任何对象。
+     * 大小写不敏感的时候逐个字符转小写，不会先拷贝一份小写的句子，返回的位置都是原文里的位置。
+     */
+    public void extract_keywords(CharSequence sentence, MatchConsumer consumer) {
+        extract_keywords(ScanText.of(sentence), consumer);
+    }
+
+    /**
+     * 见 {@link KeywordProcessor#contains_any(String)}
+     */
+    public boolean contains_any(CharSequence sentence) {
+        return first_match(sentence) != null;
+    }
+
+    /**
+     * 流式版本，匹配到第一个关键字就不再往下读了
+     */
+    public boolean contains_any(Reader reader) throws IOException {
+        FirstMatch first = new FirstMatch();
+        try {
+            extract_keywords(this.trie, ScanText.of(reader, STREAM_BUFFER_SIZE), first, 1);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return first.result != null;
+    }
+
+    /**
+     * 见 {@link KeywordProcessor#first_match(String)}
+     */
+    public KeywordProcessor.MatchResult first_match(CharSequence sentence) {
+        FirstMatch first = new FirstMatch();
+        extract_keywords(this.trie, ScanText.of(sentence), first, 1);
+        return first.result;
+    }
+
+    /**
+     * 见 {@link KeywordProcessor#count_matches(String)}
+     */
+    public int count_matches(CharSequence sentence) {
+        MatchCounter counter = new MatchCounter();
+        extract_keywords(ScanText.of(sentence), counter);
+        return counter.count;
+    }
+
+    private static final class FirstMatch implements MatchConsumer {
+        KeywordProcessor.MatchResult result;
+
+        @Override
+        public void accept(String clean_name, int start, int end) {
+            this.result = new KeywordProcessor.MatchResult(clean_name, start, end);
+        }
+    }
+
+    private static final class MatchCounter implements MatchConsumer {
+        int count;
+
+        @Override
+        public void accept(String clean_name, int start, int end) {
+            this.count++;
+        }
+    }
+
+    /**
+     * 批量匹配，把 sentences 分成若干片交给 executor 并行处理，返回的结果和 sentences 一一对应。
+     * <p>
+     * 每一片在同一个线程上顺序处理，复用同一份扫描用的临时对象。executor 可以是 ForkJoinPool，
+     * 也可以是 Java 21 的 {@code Executors.newVirtualThreadPerTaskExecutor()}。
+     */
+    public List<List<KeywordProcessor.MatchResult>> extract_all(List<? extends CharSequence> sentences, Executor executor) {
+        int count = sentences.size();
+        List<List<KeywordProcessor.MatchResult>> results = new ArrayList<>(Collections.nCopies(count, null));
+        if (count == 0)
+            return results;
+
+        int slices = Math.min(count, Runtime.getRuntime().availableProcessors() * BATCH_SLICES_PER_CORE);
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[slices];
+        for (int slice = 0; slice < slices; slice++) {
+            int from = (int) ((long) count * slice / slices);
+            int to = (int) ((long) count * (slice + 1) / slices);
+            tasks[slice] = CompletableFuture.runAsync(() -> extract_slice(sentences, from, to, results), executor);
+        }
+
+        try {
+            CompletableFuture.allOf(tasks).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+        return results;
+    }
+
+    private void extract_slice(List<? extends CharSequence> sentences, int from, int to,
+                               List<List<KeywordProcessor.MatchResult>> results) {
+        ScanText.SequenceText text = new ScanText.SequenceText("");
+        ResultCollector collector = new ResultCollector();
+
+        for (int i = from; i < to; i++) {
+            collector.target = new ArrayList<>();
+            text.reset(sentences.get(i));
+            extract_keywords(text, collector);
+            // 不同的线程写不同的下标，allOf().join() 之后对调用线程可见
+            results.set(i, collector.target);
+        }
+    }
+
+    private static final class ResultCollector implements MatchConsumer {
+        List<KeywordProcessor.MatchResult> target;
+
+        @Override
+        public void accept(String clean_name, int start, int end) {
+            this.target.add(new KeywordProcessor.MatchResult(clean_name, start, end));
+        }
+    }
+
+    /**
+     * 见 {@link #extract_all(List, Executor)}。每次从 sentences 取 {@link #STREAM_BATCH_SIZE} 段文本并行匹配，
+     * 返回的 Stream 按顺序给出每段文本的结果，读完一批的结果才去取下一批，内存占用和 sentences 的总长度无关。
+     * 关闭返回的 Stream 会关闭 sentences
+     */
+    public Stream<List<KeywordProcessor.MatchResult>> extract_all(Stream<? extends CharSequence> sentences, Executor executor) {
+        Iterator<? extends CharSequence> source = sentences.iterator();
+        Iterator<List<KeywordProcessor.MatchResult>> batches = new Iterator<List<KeywordProcessor.MatchResult>>() {
+            private Iterator<List<KeywordProcessor.MatchResult>> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                if (!this.current.hasNext() && source.hasNext()) {
+                    List<CharSequence> batch = new ArrayList<>(STREAM_BATCH_SIZE);
+                    while (batch.size() < STREAM_BATCH_SIZE && source.hasNext())
+                        batch.add(source.next());
+                    this.current = extract_all(batch, executor).iterator();
+                }
+                return this.current.hasNext();
+            }
+
+            @Override
+            public List<KeywordProcessor.MatchResult> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return this.current.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(batches, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(sentences::close);
+    }
+
+    /**
+     * 流式匹配：每次从 reader 读 {@link #STREAM_BUFFER_SIZE} 个字符，边读边匹配，返回的位置是相对整个流的开头的。
+     * 跨过缓冲区边界的匹配不受影响，内存占用和流的总长度无关。
+     * <p>
+     * 位置是 int，流最长 {@link #MAX_STREAM_LENGTH} 个字符，更长的流读到这里抛出 IOException，之前的匹配已经给出了。
+     */
+    public void extract_keywords(Reader reader, MatchConsumer consumer) throws IOException {
+        extract_keywords(reader, STREAM_BUFFER_SIZE, consumer);
+    }
+
+    public void extract_keywords(Reader reader, int buffer_size, MatchConsumer consumer) throws IOException {
+        try {
+            extract_keywords(ScanText.of(reader, buffer_size), consumer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 按 charset 解码 channel 里的字节再流式匹配，返回的位置是解码之后的字符位置。
+     * 解码之后最长 {@link #MAX_STREAM_LENGTH} 个字符，见 {@link #extract_keywords(Reader, MatchConsumer)}
+     */
+    public void extract_keywords(ReadableByteChannel channel, Charset charset, MatchConsumer consumer) throws IOException {
+        extract_keywords(Channels.newReader(channel, charset.newDecoder(), -1), consumer);
+    }
+
+    /**
+     * 见 {@link KeywordProcessor#replace_keywords(String)}
+     */
+    public String replace_keywords(String sentence) {
+        StringBuilder new_sentence = new StringBuilder(sentence.length());
+        replace_keywords(sentence, new_sentence);
+        return new_sentence.toString();
+    }
+
+    /**
+     * 把 sentence 里匹配到的关键字换成 clean_name，追加到 new_sentence 后面。匹配规则和 extract_keywords 完全一样，
+     * 没匹配到的部分原样拷贝（大小写不敏感的时候也保留原文的大小写），只扫描一遍。
+     * 和 extract_keywords 一样，关键字后面紧跟着的标点算在匹配里，会一起被替换掉。
+     */
+    public void replace_keywords(CharSequence sentence, StringBuilder new_sentence) {
+        int[] copied = {0};
+        extract_keywords(ScanText.of(sentence), (clean_name, start, end) -> {
+            new_sentence.append(sentence, copied[0], start).append(clean_name);
+            copied[0] = end;
+        });
+        new_sentence.append(sentence, copied[0], sentence.length());
+    }
+
+    public void replace_keywords(CharSequence sentence, Appendable out) throws IOException {
+        int[] copied = {0};
+        try {
+            extract_keywords(ScanText.of(sentence), (clean_name, start, end) -> {
+                try {
+                    out.append(sentence, copied[0], start).append(clean_name);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                copied[0] = end;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.append(sentence, copied[0], sentence.length());
+    }
+
+    /**
+     * 流式替换：边读边匹配边写，确定不会被替换的文字马上写到 writer，内存占用和流的总长度无关。
+     * writer 不会被 flush 或者 close。流最长 {@link #MAX_STREAM_LENGTH} 个字符，超过了抛出 IOException。
+     */
+    public void replace_keywords(Reader reader, Appendable writer) throws IOException {
+        replace_keywords(reader, STREAM_BUFFER_SIZE, writer);
+    }
+
+    public void replace_keywords(Reader reader, int buffer_size, Appendable writer) throws IOException {
+        try {
+            ReplacingText text = new ReplacingText(ScanText.of(reader, buffer_size), writer);
+            extract_keywords(text, text);
+            text.finish();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 扫描过程中，release 之前的文字不会再被访问，也不会再有匹配从那之前开始，这时候就把它们原样写出去；
+     * 匹配到关键字的时候写 clean_name，跳过原文。写的时候抛出的 IOException 包成 {@link UncheckedIOException}。
+     */
+    private static final class ReplacingText extends ScanText implements MatchConsumer {
+        private final ScanText text;
+        private final Appendable out;
+        /**
+         * 这个位置之前的原文已经处理完了
+         */
+        private int written;
+
+        ReplacingText(ScanText text, Appendable out) {
+            this.text = text;
+            this.out = out;
+        }
+
+        @Override
+        boolean has(int index) {
+            return this.text.has(index);
+        }
+
+        @Override
+        char at(int index) {
+            return this.text.at(index);
+        }
+
+        @Override
+        int length() {
+            return this.text.length();
+        }
+
+        @Override
+        void release(int index) {
+            copy_to(index);
+            this.text.release(index);
+        }
+
+        @Override
+        public void accept(String clean_name, int start, int end) {
+            copy_to(start);
+            try {
+                this.out.append(clean_name);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.written = end;
+        }
+
+        /**
+         * 扫描结束之后调用，这时候文本的长度已经确定了
+         */
+        void finish() {
+            copy_to(this.text.length());
+        }
+
+        private void copy_to(int index) {
+            try {
+                for (; this.written < index; this.written++)
+                    this.out.append(this.text.at(this.written));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    void extract_keywords(ScanText text, MatchConsumer consumer) {
+        extract_keywords(this.trie, text, consumer, Integer.MAX_VALUE);
+    }
+
+    void extract_keywords(Trie trie, ScanText text, MatchConsumer consumer) {
+        extract_keywords(trie, text, consumer, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 用同样的配置在另一棵字典树上匹配，比如只露出部分关键字的视图
+     *
+     * @param max_matches 匹配到这么多个就不再往下扫了。前面给出的匹配之后不会再变，所以提前停下来不影响已经给出的结果
+     */
+    void extract_keywords(Trie trie, ScanText text, MatchConsumer consumer, int max_matches) {
+        ScanListener listener = this.listener;
+        CharClassifier classifier = this.classifier;
+        // 视图的根节点可能和快照的不一样，不过滤
+        FirstCharFilter first_chars = trie == this.trie ? this.first_chars : null;
+        boolean instrumented = listener != ScanListener.NONE;
+        long started = instrumented ? System.nanoTime() : 0;
+        // 流式读取的时候不能先把整篇文本读一遍，不排除
+        NgramSignature signature = trie == this.trie && text instanceof ScanText.SequenceText ? this.signature : null;
+        if (signature != null) {
+            boolean rejected = !signature.may_match(text, this);
+            if (instrumented) {
+                long checked = System.nanoTime();
+                listener.on_quick_check(text.length(), rejected, checked - started);
+                started = checked;
+            }
+            if (rejected)
+                return;
+        }
+        if (instrumented) {
+            MatchConsumer downstream = consumer;
+            consumer = (clean_name, start, end) -> {
+                listener.on_match(clean_name);
+                downstream.accept(clean_name, start, end);
+            };
+        }
+        // 只在局部变量里计数，结束的时候报告一次。往回退之后重新读的也算，很长的流会超过 int
+        long chars_scanned = 0;
+        long nodes_visited = 0;
+        long restarts = 0;
+        long backtracks = 0;
+        int matches = 0;
+
+        int current_node = trie.root();
+        int sequence_start_pos = 0;
+        int sequence_end_pos = 0;
+        boolean reset_current_dict = false;
+        int idx = 0;
+
+        // 依次查找
+        scan:
+        while (text.has(idx)) {
+            if (first_chars != null && current_node == trie.root()) {
+                // 停在根节点上的时候，碰到关键字的首字符之前只会一直重置，和下面的逻辑一样，只是不用查字典树
+                while (text.has(idx)) {
+                    text.release(sequence_start_pos);
+                    char ch = char_at(text, idx);
+                    if (classifier.is_ignored(ch)) {
+                        chars_scanned++;
+                        idx++;
+                        continue;
+                    }
+                    if (first_chars.may_start(ch))
+                        break;
+                    chars_scanned++;
+                    restarts++;
+
+                    if (!classifier.is_boundary(ch)) {
+                        // skip to end of word
+                        idx++;
+                        while (text.has(idx)) {
+                            text.release(idx);
+                            char chy = char_at(text, idx);
+                            chars_scanned++;
+                            if (!CharUtils.isAsciiPrintable(chy)) {
+                                idx--;
+                                backtracks++;
+                                break;
+                            }
+                            if (classifier.is_boundary(chy))
+                                break;
+                            idx++;
+                        }
+                    }
+                    idx++;
+                    sequence_start_pos = idx;
+                }
+                if (!text.has(idx))
+                    break;
+            }
+
+            // 之后只会访问 idx 及以后的字符，不过当前匹配的起点还要用来换算位置
+            text.release(sequence_start_pos);
+            char ch = char_at(text, idx);
+            chars_scanned++;
+
+            if (classifier.is_ignored(ch)) {
+                idx++;
+                continue;
+            }
+
+            // 分界 TODO: 后者是为了让中文匹配结束
+            if (classifier.is_boundary(ch) || (trie.is_keyword(current_node) && !CharUtils.isAsciiPrintable(ch))) {
+                // if end is present in current_dict
+                // TODO: 中文可能不需要分界
+                // 找到该分界匹配，或者找到头了
+                if (trie.is_keyword(current_node) || trie.child(current_node, ch) != Trie.NO_NODE) {
+                    // update longest sequence found
+                    String longest_sequence_found = "";
+                    boolean is_longer_seq_found = false;
+
+                    // 找到了一个匹配，比如"hello"，但可能还有一个更长的匹配，比如"hello world"
+                    if (trie.is_keyword(current_node)) {
+                        longest_sequence_found = trie.clean_name(current_node);
+                        sequence_end_pos = idx;
+                    }
+
+                    // 继续往下匹配，看能不能匹配到更长的
+                    // re look for longest_sequence from this position
+                    if (trie.child(current_node, ch) != Trie.NO_NODE) {
+                        // 继续内部匹配
+                        int current_node_continued = trie.child(current_node, ch);
+                        nodes_visited++;
+                        int idy = idx + 1;
+
+                        // 依次查找
+                        while (text.has(idy)) {
+                            char inner_char = char_at(text, idy);
+                            chars_scanned++;
+
+                            if (classifier.is_ignored(inner_char)) {
+                                idy++;
+                                continue;
+                            }
+
+                            // 字符又是分界，且匹配到头了
+                            if (classifier.is_boundary(inner_char) && trie.is_keyword(current_node_continued)) {
+                                // update longest sequence found
+                                longest_sequence_found = trie.clean_name(current_node_continued);
+                                sequence_end_pos = idy;
+                                is_longer_seq_found = true;
+                            }
+                            // 继续匹配下去
+                            if (trie.child(current_node_continued, inner_char) != Trie.NO_NODE) {
+                                current_node_continued = trie.child(current_node_continued, inner_char);
+                                nodes_visited++;
+                            } else {
+                                break;
+                            }
+                            idy += 1;
+                        }
+
+                        // 不再匹配了，但是到头了
+                        if (trie.is_keyword(current_node_continued)) {
+                            // update longest sequence found
+                            longest_sequence_found = trie.clean_name(current_node_continued);
+                            sequence_end_pos = idy;
+                            is_longer_seq_found = true;
+                        }
+
+                        if (is_longer_seq_found) {
+                            idx = sequence_end_pos;
+                        }
+                    }
+
+                    // 回到最初的起点
+                    current_node = trie.root();
+                    // 匹到了
+                    if (longest_sequence_found != null && !longest_sequence_found.isEmpty()) {
+                        consumer.accept(longest_sequence_found, sequence_start_pos, idx);
+                        if (++matches == max_matches)
+                            break scan;
+                    }
+                    reset_current_dict = true;
+                    restarts++;
+
+                    // 回退一位，否则如果是中文的话，这一位就被跳过去了。英文把空格回退回去再匹一遍也没影响
+                    idx--;
+                    backtracks++;
+
+                } else {
+                    // 没找到分界，重置
+                    current_node = trie.root();
+                    reset_current_dict = true;
+                    restarts++;
+                }
+            } else if (trie.child(current_node, ch) != Trie.NO_NODE) {
+                // 不是分界，且能够继续匹配
+                //we can continue from this char
+                current_node = trie.child(current_node, ch);
+                nodes_visited++;
+            } else {
+                // 不是分界，也没法继续匹配
+                // we reset current_dict
+                current_node = trie.root();
+                reset_current_dict = true;
+                restarts++;
+
+                // skip to end of word
+                int idy = idx + 1;
+                while (text.has(idy)) {
+                    text.release(idy);
+                    char chy = char_at(text, idy);
+                    chars_scanned++;
+                    // 走到下一个边界，再开始匹配
+                    // TODO：非ascii直接开始匹配
+                    if (classifier.is_boundary(chy) || !CharUtils.isAsciiPrintable(chy)) {
+
+                        if (!CharUtils.isAsciiPrintable(chy)) {
+                            idy--;
+                            backtracks++;
+                        }
+                        break;
+                    }
+                    idy += 1;
+                }
+                idx = idy;
+            }
+
+            // 判断完一个字符，如果到头了
+            // if we are end of sentence and have a sequence discovered
+            if (!text.has(idx + 1)) {
+                if (trie.is_keyword(current_node)) {
+                    String sequence_found = trie.clean_name(current_node);
+                    consumer.accept(sequence_found, sequence_start_pos, text.length());
+                    if (++matches == max_matches)
+                        break scan;
+                }
+            }
+            idx += 1;
+
+            // 一次查询结束了
+            if (reset_current_dict) {
+                reset_current_dict = false;
+                sequence_start_pos = idx;
+            }
+        }
+
+        if (instrumented)
+            listener.on_extract(chars_scanned, nodes_visited, restarts, backtracks, System.nanoTime() - started);
+    }
+
+    private char char_at(ScanText text, int idx) {
+        return fold(text.at(idx));
+    }
+
+    /**
+     * 大小写不敏感的时候转成小写，见 {@link CaseFolding}
+     */
+    char fold(char ch) {
+        return this.case_sensitive ? ch : CaseFolding.fold(ch);
+    }
+
+    /**
+     * 转过大小写之后的字符是不是分界
+     */
+    boolean is_boundary(char ch) {
+        return this.classifier.is_boundary(ch);
+    }
+
+    /**
+     * 转过大小写之后的字符是不是匹配的时候要跳过的字符
+     */
+    boolean is_ignored(char ch) {
+        return this.classifier.is_ignored(ch);
+    }
+}
@@ -0,0 +1,869 @@
+package flashtext;
+
+import lombok.Data;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * 匹配的时候忽略文字里的特殊字符{@link KeywordMatcher#PUNCTUATIONS}（可以用 {@link #char_classifier} 配置），所以关键字里也要去掉这些字符。
+ * - 支持匹配最长的关键字；
+ * - 支持忽略特殊字符；
+ * - 不支持任意空格
+ * <p>
+ * 修改字典的方法之间互斥，查询和匹配都走当前发布的不可变快照 {@link #matcher()}，不加锁，
+ * 所以可以一边在后台线程更新字典，一边在多个线程里 extract_keywords。
+ */
+public class KeywordProcessor {
+
+    public CharTrie keyword_trie_dict;
+    public boolean case_sensitive;
+    public List<String> word_boundaries = Arrays.asList(new String[]{" ", "\t", "\n", ",", "."});
+    /**
+     * 观察扫描过程的监听器，比如 {@link ScanMetrics}，改了之后下一次查询生效
+     */
+    public ScanListener scan_listener = ScanListener.NONE;
+    /**
+     * 匹配的时候忽略哪些字符、除了 word_boundaries 之外还有哪些字符是分界，
+     * 比如中文文本可以用 {@link CharClassifier#CJK} 把全角标点也当作分界。改了之后下一次查询生效
+     */
+    public CharClassifier char_classifier = CharClassifier.DEFAULT;
+    /**
+     * 匹配的时候先用关键字的首字符过滤，跳过不可能是关键字开头的字符，结果不变。
+     * 匹配很稀疏、关键字的首字符又不多的时候快很多，比如中文文本；英文单词的首字母基本都能开头，几乎没有影响
+     */
+    public boolean prefilter = true;
+    /**
+     * 匹配一段文本之前先用关键字的前缀整篇排除，一定不含关键字的文本不用再走字典树，见 {@link NgramSignature}。
+     * 大量短文本、绝大部分都不含关键字的时候才划算，排除的比例和省下的时间可以挂上 {@link ScanMetrics} 看。
+     * 流式匹配不排除
+     */
+    public boolean quick_reject;
+    /**
+     * {@link #extract_keywords(String)} 的结果缓存，null 表示不缓存。字典或配置改了之后旧的结果自动作废
+     */
+    public ExtractionCache extraction_cache;
+
+    /**
+     * 修改字典、编译快照的时候持有
+     */
+    private final ReentrantLock write_lock = new ReentrantLock();
+    /**
+     * 当前发布的快照
+     */
+    private final AtomicReference<KeywordMatcher> matcher = new AtomicReference<>();
+    /**
+     * 字典在发布快照之后又改过
+     */
+    private volatile boolean dirty;
+    /**
+     * 最近一次发布的快照的版本号，持有 write_lock 的时候才能改
+     */
+    private long version;
+    /**
+     * 调用过 {@link #compile_off_heap()}，之后发布的快照都放在堆外，持有 write_lock 的时候才能改
+     */
+    private boolean off_heap;
+
+    public KeywordProcessor() {
+        this.keyword_trie_dict = new CharTrie();
+        this.case_sensitive = false;
+        this.dirty = true;
+    }
+
+    public int __len__() {
+        return this.keyword_trie_dict.size();
+    }
+
+    /**
+     * 字典树平均每个关键字占用的堆内存，不包括 clean name 字符串，见 {@link CharTrie#estimated_bytes()}
+     */
+    public double bytes_per_keyword() {
+        int terms = this.keyword_trie_dict.size();
+        return terms == 0 ? 0 : (double) this.keyword_trie_dict.estimated_bytes() / terms;
+    }
+
+    /**
+     * 把当前的字典和配置编译成不可变的 {@link KeywordMatcher} 并发布出去，之后的查询都用它。
+     * 正在用旧快照匹配的线程不受影响。
+     */
+    public KeywordMatcher compile() {
+        this.write_lock.lock();
+        try {
+            KeywordMatcher compiled = new KeywordMatcher(
+                    CompiledTrie.of(this.keyword_trie_dict), this.case_sensitive, this.word_boundaries,
+                    ++this.version, this.scan_listener, this.char_classifier, this.prefilter, this.quick_reject);
+            // 先发布再清标记，看到 dirty == false 的线程一定能拿到新的快照
+            this.matcher.set(compiled);
+            this.dirty = false;
+            this.off_heap = false;
+            return compiled;
+        } finally {
+            this.write_lock.unlock();
+        }
+    }
+
+    /**
+     * 和 {@link #compile()} 一样，但是发布的快照放在堆外，见 {@link KeywordMatcher#off_heap()}。
+     * 之后字典或配置改了，{@link #matcher()} 重新发布的快照也放在堆外，直到调用 {@link #compile()}。
+     * 每次发布都要把整个字典拷到堆外，只适合很少修改的字典。
+     * <p>
+     * 这只是把快照挪到了堆外，当前 processor 里可修改的字典还在堆上，堆占用照样随字典变大。
+     * 想让堆不随字典变大，要离线建好字典 {@link #save(Path)}，启动的时候不建 processor，
+     * 直接用 {@link KeywordMatcher#load(Path, boolean)} 加载，cache_clean_names 传 false。
+     * <p>
+     * 堆外的快照上不能用 {@link #aho_corasick()}、{@link #extract_all_matches(String)} 和 {@link #token_trie()}，
+     * 会抛出 UnsupportedOperationException，见 {@link KeywordMatcher#off_heap()}。
+     */
+    public KeywordMatcher compile_off_heap() {
+        this.write_lock.lock();
+        try {
+            KeywordMatcher compiled = new KeywordMatcher(
+                    this.keyword_trie_dict.snapshot(), this.case_sensitive, this.word_boundaries,
+                    ++this.version, this.scan_listener, this.char_classifier, this.prefilter, this.quick_reject).off_heap();
+            this.matcher.set(compiled);
+            this.dirty = false;
+            this.off_heap = true;
+            return compiled;
+        } finally {
+            this.write_lock.unlock();
+        }
+    }
+
+    /**
+     * 把字典的当前状态发布出去，不重新编译：{@link CharTrie#snapshot()} 是 O(1) 的，
+     * 之后的修改只复制改到的那条路径，所以边改边查的时候每次修改的代价只和关键字长度有关。
+     * 调用过 {@link #compile_off_heap()} 的话要把整个字典拷到堆外。
+     * 调用方要持有 write_lock。
+     */
+    private KeywordMatcher publish() {
+        KeywordMatcher published = new KeywordMatcher(
+                this.keyword_trie_dict.snapshot(), this.case_sensitive, this.word_boundaries,
+                ++this.version, this.scan_listener, this.char_classifier, this.prefilter, this.quick_reject);
+        if (this.off_heap)
+            published = published.off_heap();
+        this.matcher.set(published);
+        this.dirty = false;
+        return published;
+    }
+
+    /**
+     * 用另一个已经建好字典的 processor 整体替换当前字典，用于热加载：
+     * 在调用线程上把 built 编译好，然后一次性发布，期间查询线程不会被阻塞，也不会看到建了一半的字典。
+     * <p>
+     * 替换之后 built 的字典归当前 processor 所有，不要再通过 built 修改它。
+     * 当前的 {@link #scan_listener}、{@link #prefilter} 和 {@link #quick_reject} 保持不变，
+     * 调用过 {@link #compile_off_heap()} 的话新的快照也放在堆外。
+     *
+     * @return 被替换下来的旧快照
+     */
+    public KeywordMatcher swap(KeywordProcessor built) {
+        KeywordMatcher built_matcher = built.compile();
+        return swap(built.keyword_trie_dict, built_matcher.trie(), built.case_sensitive, built.word_boundaries,
+                built.char_classifier);
+    }
+
+    /**
+     * 用 {@link KeywordMatcher#build(Stream, boolean, List, Executor)} 批量建好的字典整体替换当前字典，用于热加载。
+     * 发布出去的快照直接用 built 的 {@link PackedTrie}，字典和配置都以 built 为准，其余的规则和 {@link #swap(KeywordProcessor)} 一样。
+     * <p>
+     * 之后还要能 add_keyword，所以在调用线程上按 built 的内容另建一份可修改的字典，不阻塞查询线程。
+     * 之后再修改字典的话，发布的就是这份可修改字典的快照了。
+     *
+     * @return 被替换下来的旧快照
+     */
+    public KeywordMatcher swap(KeywordMatcher built) {
+        CharTrie dict = new CharTrie();
+        // 字典树里的关键字已经转过大小写了
+        for (KeywordCursor cursor = built.keywords(""); cursor.hasNext(); ) {
+            Map.Entry<String, String> entry = cursor.next();
+            dict.put(entry.getKey(), entry.getValue());
+        }
+        return swap(dict, built.trie(), built.case_sensitive(), built.word_boundaries(), built.char_classifier());
+    }
+
+    private KeywordMatcher swap(CharTrie dict, Trie trie, boolean case_sensitive, List<String> word_boundaries,
+                                CharClassifier char_classifier) {
+        this.write_lock.lock();
+        try {
+            this.keyword_trie_dict = dict;
+            this.case_sensitive = case_sensitive;
+            this.word_boundaries = word_boundaries;
+            this.char_classifier = char_classifier;
+            KeywordMatcher compiled = new KeywordMatcher(
+                    trie, this.case_sensitive, this.word_boundaries,
+                    ++this.version, this.scan_listener, this.char_classifier, this.prefilter, this.quick_reject);
+            if (this.off_heap)
+                compiled = compiled.off_heap();
+            KeywordMatcher previous = this.matcher.getAndSet(compiled);
+            this.dirty = false;
+            return previous;
+        } finally {
+            this.write_lock.unlock();
+        }
+    }
+
+    /**
+     * 当前发布的快照。字典或配置改过之后，如果这时没有线程在修改字典，就顺手发布一份新的；
+     * 否则先继续用上一份快照，不等锁。
+     * <p>
+     * 这样发布的快照直接用字典树的不可变视图，不会重新编译，想要更紧凑的 {@link CompiledTrie} 就调用 {@link #compile()}。
+     * 调用过 {@link #compile_off_heap()} 的话，发布的快照放在堆外。
+     */
+    public KeywordMatcher matcher() {
+        KeywordMatcher current = this.matcher.get();
+        if (current != null && !is_stale(current))
+            return current;
+
+        if (current == null)
+            this.write_lock.lock();
+        else if (!this.write_lock.tryLock())
+            return current;
+        try {
+            current = this.matcher.get();
+            return current != null && !is_stale(current) ? current : publish();
+        } finally {
+            this.write_lock.unlock();
+        }
+    }
+
+    /**
+     * @return 当前发布的快照的版本号，见 {@link KeywordMatcher#version()}
+     */
+    public long version() {
+        return matcher().version();
+    }
+
+    /**
+     * 当前字典上的 Aho-Corasick 匹配引擎，适合中文这种没有单词分界的长文本，见 {@link AhoCorasickMatcher}
+     */
+    public AhoCorasickMatcher aho_corasick() {
+        return matcher().aho_corasick();
+    }
+
+    /**
+     * 当前字典上按词匹配的引擎，适合英文这种多个单词组成一个关键字的字典，见 {@link TokenTrieMatcher}
+     */
+    public TokenTrieMatcher token_trie() {
+        return matcher().token_trie();
+    }
+
+    /**
+     * 把当前的快照存成二进制文件。启动的时候用 {@link KeywordMatcher#load(Path)} 直接映射进来匹配，不用重新建字典
+     */
+    public void save(Path file) throws IOException {
+        matcher().save(file);
+    }
+
+    private boolean is_stale(KeywordMatcher current) {
+        return this.dirty
+                || current.case_sensitive() != this.case_sensitive
+                || !current.word_boundaries().equals(this.word_boundaries)
+                || current.listener() != this.scan_listener
+                || current.char_classifier() != this.char_classifier
+                || current.prefilter() != this.prefilter
+                || current.quick_reject() != this.quick_reject;
+    }
+
+    //
+    private boolean __contains__(String word) {
+        /*
+            To check if word is present in the keyword_trie_dict
+            Args:
+                word : string word that you want to check
+
+            Returns:
+               status : bool
+                If word is present as it is in keyword_trie_dict then we return True, else False
+
+            Examples:
+                    >>> keyword_processor.add_keyword('Big Apple')
+                    >>> 'Big Apple' in keyword_processor
+                    >>> # True
+        */
+        return matcher().contains(word);
+    }
+
+
+    private String __getitem__(String word) {
+        /*
+        if word is present in keyword_trie_dict return the clean name for it.
+            Args:
+            word : string
+            word that you want to check
+
+            Returns:
+            keyword : string
+            If word is present as it is in keyword_trie_dict then we return keyword mapped to it.
+
+            Examples:
+                    >>> keyword_processor.add_keyword('Big Apple', 'New York')
+                    >>> keyword_processor['Big Apple']
+                    >>> # New York
+         */
+        return matcher().get_keyword(word);
+    }
+
+
+    private boolean __setitem__(String keyword, String clean_name) {
+        /*
+        To add keyword to the dictionary
+        pass the keyword and the clean name it maps to.
+
+        Args:
+        keyword : string
+        keyword that you want to identify
+
+        clean_name : string
+        clean term for that keyword that you would want to get back in return or replace
+                    if not provided, keyword will be used as the clean name also.
+
+        Examples:
+            >>> keyword_processor['Big Apple'] = 'New York'
+        */
+        if ((clean_name == null || clean_name.isEmpty()) && !keyword.isEmpty())
+            clean_name = keyword;
+
+        // 和 Python 版一样，空的关键字不加
+        if (keyword.isEmpty())
+            return false;
+        if (!this.case_sensitive)
+            keyword = CaseFolding.fold(keyword);
+
+        this.write_lock.lock();
+        try {
+            boolean status = this.keyword_trie_dict.put(keyword, clean_name);
+            this.dirty = true;
+            return status;
+        } finally {
+            this.write_lock.unlock();
+        }
+    }
+
+
+    private boolean __delitem__(String keyword) {
+        /*
+        To remove keyword from the dictionary
+        pass the keyword and the clean name it maps to.
+
+        Args:
+        keyword : string
+        keyword that you want to remove if it's present
+
+        Examples:
+                >>> keyword_processor.add_keyword('Big Apple')
+                >>> del keyword_processor['Big Apple']
+        */
+        boolean status = false;
+        if (!keyword.isEmpty()) {
+            if (!this.case_sensitive)
+                keyword = CaseFolding.fold(keyword);
+
+            this.write_lock.lock();
+            try {
+                // remove the characters from trie dict if there are no other keywords with them
+                status = this.keyword_trie_dict.remove(keyword);
+                this.dirty = true;
+            } finally {
+                this.write_lock.unlock();
+            }
+        }
+        return status;
+    }
+
+
+    public boolean add_keyword(String keyword, String clean_name) {
+        /*
+            To add one or more keywords to the dictionary
+            pass the keyword and the clean name it maps to.
+
+            Args:
+            keyword : string
+            keyword that you want to identify
+
+            clean_name : string
+            clean term for that keyword that you would want to get back in return or replace
+                        if not provided, keyword will be used as the clean name also.
+
+            Returns:
+            status : bool
+            The return value. True for success, False otherwise.
+
+            Examples:
+                    >>> keyword_processor.add_keyword('Big Apple', 'New York')
+                    >>> # This case 'Big Apple' will return 'New York'
+                    >>> # OR
+                    >>> keyword_processor.add_keyword('Big Apple')
+                            >>> # This case 'Big Apple' will return 'Big Apple'
+        */
+        return this.__setitem__(keyword, clean_name);
+    }
+
+    public boolean remove_keyword(String keyword) {
+        /*
+        To remove one or more keywords from the dictionary
+
+        pass the keyword and the clean name it maps to.
+
+        Args:
+        keyword : string
+        keyword that you want to remove if it's present
+
+        Returns:
+        status : bool
+        The return value. True for success, False otherwise.
+
+        Examples:
+                >>> keyword_processor.add_keyword('Big Apple')
+                >>> keyword_processor.remove_keyword('Big Apple')
+                >>> # Returns True
+                >>> # This case 'Big Apple' will no longer be a recognized keyword
+                >>> keyword_processor.remove_keyword('Big Apple')
+                        >>> # Returns False
+
+         */
+        return this.__delitem__(keyword);
+    }
+
+    public String get_keyword(String word) {
+        /*
+            if word is present in keyword_trie_dict return the clean name for it.
+
+            Args:
+            word:
+            string
+            word that you want to check
+
+            Returns:
+            keyword:
+            string
+            If word is present as it is in keyword_trie_dict then we return keyword mapped to it.
+
+                    Examples:
+                >>>keyword_processor.add_keyword('Big Apple', 'New York')
+                    >>> keyword_processor.get('Big Apple')
+                    >>> #New York
+        */
+        return this.__getitem__(word);
+    }
+
+    public void add_keywords_from_dict(Map<String, ArrayList<String>> keyword_dict) {
+        /*
+            To add keywords from a dictionary
+            Args:
+            keyword_dict(dict):A dictionary with `str` key and (list `str`)as value
+
+            Examples:
+                >>>keyword_dict = {
+                    "java": ["java_2e", "java programing"],
+                    "product management": ["PM", "product manager"]
+            }
+            >>>keyword_processor.add_keywords_from_dict(keyword_dict)
+
+            Raises:
+                AttributeError:
+                If value for a key in `keyword_dict` is not a list.
+        */
+        // 整批改完再让查询线程重新编译快照
+        this.write_lock.lock();
+        try {
+            for (Map.Entry<String, ArrayList<String>> entry : keyword_dict.entrySet()) {
+                String clean_name = entry.getKey();
+                ArrayList<String> keywords = entry.getValue();
+
+                for (String keyword : keywords)
+                    this.add_keyword(keyword, clean_name);
+            }
+        } finally {
+            this.write_lock.unlock();
+        }
+    }
+
+    public void remove_keywords_from_dict(Map<String, ArrayList<String>> keyword_dict) {
+        /*
+            To remove keywords from a dictionary
+            Args:
+            keyword_dict (dict): A dictionary with `str` key and (list `str`) as value
+
+            Examples:
+                    >>> keyword_dict = {
+                "java": ["java_2e", "java programing"],
+                "product management": ["PM", "product manager"]
+            }
+                    >>> keyword_processor.remove_keywords_from_dict(keyword_dict)
+
+            Raises:
+            AttributeError: If value for a key in `keyword_dict` is not a list.
+
+         */
+        this.write_lock.lock();
+        try {
+            for (Map.Entry<String, ArrayList<String>> entry : keyword_dict.entrySet()) {
+                String clean_name = entry.getKey();
+                ArrayList<String> keywords = entry.getValue();
+
+                for (String keyword : keywords)
+                    this.remove_keyword(keyword);
+            }
+        } finally {
+            this.write_lock.unlock();
+        }
+
+    }
+
+    public void add_keywords_from_list(ArrayList<String> keyword_list) {
+        /*
+        To add keywords from a list
+
+        Args:
+        keyword_list (list(str)): List of keywords to add
+
+        Examples:
+                >>> keyword_processor.add_keywords_from_list(["java", "python"]})
+            Raises:
+            AttributeError: If `keyword_list` is not a list.
+         */
+        this.write_lock.lock();
+        try {
+            for (String keyword : keyword_list)
+                this.add_keyword(keyword, null);
+        } finally {
+            this.write_lock.unlock();
+        }
+    }
+
+    public void remove_keywords_from_list(ArrayList<String> keyword_list) {
+        /*
+        To remove keywords present in list
+
+            Args:
+            keyword_list (list(str)): List of keywords to remove
+
+            Examples:
+                    >>> keyword_processor.remove_keywords_from_list(["java", "python"]})
+                Raises:
+                AttributeError: If `keyword_list` is not a list.
+
+         */
+        this.write_lock.lock();
+        try {
+            for (String keyword : keyword_list)
+                this.remove_keyword(keyword);
+        } finally {
+            this.write_lock.unlock();
+        }
+    }
+
+    public Map<String, String> get_all_keywords() {
+        /*
+        Builds a dictionary of keywords present in the dictionary
+        And the clean name mapped to those keywords.
+
+        Returns:
+        terms_present : dict
+        A map of key and value where each key is a term in the keyword_trie_dict.
+        And value mapped to it is the clean name mapped to it.
+
+        Examples:
+                >>> keyword_processor = KeywordProcessor()
+                >>> keyword_processor.add_keyword('j2ee', 'Java')
+                        >>> keyword_processor.add_keyword('Python', 'Python')
+                        >>> keyword_processor.get_all_keywords()
+                        >>> {'j2ee': 'Java', 'python': 'Python'}
+                >>> # NOTE: for case_insensitive all keys will be lowercased.
+
+         */
+        return matcher().get_all_keywords();
+    }
+
+    public Map<String, String> get_keywords_with_prefix(String prefix, int limit) {
+        /*
+        Lists keywords starting with the prefix in sorted order, at most limit of them.
+        Useful for autocomplete.
+
+        Args:
+        prefix (str): beginning of the keywords to list
+        limit (int): maximum number of keywords to return
+
+        Returns:
+        terms_present : dict
+        An ordered map of key and clean name, sorted by key.
+
+        Examples:
+                >>> keyword_processor = KeywordProcessor()
+                >>> keyword_processor.add_keyword('java', 'Java')
+                        >>> keyword_processor.add_keyword('javascript', 'JavaScript')
+                        >>> keyword_processor.add_keyword('python', 'Python')
+                        >>> keyword_processor.get_keywords_with_prefix('Ja', 10)
+                        >>> {'java': 'Java', 'javascript': 'JavaScript'}
+
+         */
+        return matcher().get_keywords_with_prefix(prefix, limit);
+    }
+
+    /**
+     * 按字符顺序逐个列出以 prefix 开头的关键字，不会先把结果收集起来，见 {@link KeywordCursor}。
+     * 遍历的是调用时的快照，导出整个字典用 prefix 为空串
+     */
+    public KeywordCursor keywords(String prefix) {
+        return matcher().keywords(prefix);
+    }
+
+    public List<MatchResult> extract_keywords(String sentence) {
+        /*
+        Searches in the string for all keywords present in corpus.
+        Keywords present are added to a list `keywords_extracted` and returned.
+
+        Args:
+        sentence (str): Line of text where we will search for keywords
+
+        Returns:
+        keywords_extracted (list(str)): List of terms/keywords found in sentence that match our corpus
+
+        Examples:
+                >>> from flashtext import KeywordProcessor
+                >>> keyword_processor = KeywordProcessor()
+                >>> keyword_processor.add_keyword('Big Apple', 'New York')
+                        >>> keyword_processor.add_keyword('Bay Area')
+                        >>> keywords_found = keyword_processor.extract_keywords('I love Big Apple and Bay Area.')
+                >>> keywords_found
+                >>> ['New York', 'Bay Area']
+         */
+
+        ExtractionCache cache = this.extraction_cache;
+        if (cache != null)
+            return cache.extract_keywords(matcher(), sentence);
+        return matcher().extract_keywords(sentence);
+    }
+
+    public List<FuzzyMatcher.FuzzyMatch> extract_keywords(String sentence, int max_cost) {
+        /*
+        Searches in the string for all keywords present in corpus,
+        allowing up to max_cost character edits (insertions, deletions or substitutions) per keyword.
+
+        Args:
+        sentence (str): Line of text where we will search for keywords
+        max_cost (int): maximum levenshtein distance to accept as a match
+
+        Returns:
+        keywords_extracted (list): List of terms/keywords found in sentence with the edit cost of each match
+
+        Examples:
+                >>> keyword_processor = KeywordProcessor()
+                >>> keyword_processor.add_keyword('counter strike', 'CS')
+                >>> keyword_processor.extract_keywords('I love Counter Strke', max_cost=1)
+                >>> [('CS', 7, 20, 1)]
+         */
+
+        return matcher().fuzzy().extract_keywords(sentence, max_cost);
+    }
+
+    /**
+     * 和 word 的编辑距离不超过 max_cost 的关键字，见 {@link FuzzyMatcher#get_fuzzy_keywords(String, int)}
+     */
+    public Map<String, Integer> get_fuzzy_keywords(String word, int max_cost) {
+        return matcher().fuzzy().get_fuzzy_keywords(word, max_cost);
+    }
+
+    public List<MatchResult> extract_all_matches(String sentence) {
+        /*
+        Searches in the string for every occurrence of keywords present in corpus,
+        including nested and overlapping ones, in a single pass.
+        Word boundaries are not checked, see aho_corasick().
+
+        Args:
+        sentence (str): Line of text where we will search for keywords
+
+        Returns:
+        keywords_extracted (list): every keyword found, ordered by end position, longer ones first
+
+        Examples:
+                >>> keyword_processor = KeywordProcessor()
+                >>> keyword_processor.add_keyword('hello world', 'Greeting')
+                        >>> keyword_processor.add_keyword('hello world life', 'Life')
+                        >>> keyword_processor.add_keyword('world life', 'World')
+                        >>> keyword_processor.extract_all_matches('hello world life')
+                >>> [('Greeting', 0, 11), ('Life', 0, 16), ('World', 6, 16)]
+         */
+        return aho_corasick().extract_all_matches(sentence);
+    }
+
+    public boolean contains_any(String sentence) {
+        /*
+        Checks whether any keyword present in corpus occurs in the string.
+        Stops scanning at the first keyword found, no result list is built.
+
+        Args:
+        sentence (str): Line of text where we will search for keywords
+
+        Returns:
+        found (bool): True if extract_keywords would return at least one keyword
+
+        Examples:
+                >>> keyword_processor = KeywordProcessor()
+                >>> keyword_processor.add_keyword('Big Apple', 'New York')
+                        >>> keyword_processor.contains_any('I love Big Apple and Bay Area.')
+                >>> True
+         */
+        return matcher().contains_any(sentence);
+    }
+
+    public MatchResult first_match(String sentence) {
+        /*
+        Searches in the string for the first keyword present in corpus.
+        Stops scanning as soon as it is found.
+
+        Args:
+        sentence (str): Line of text where we will search for keywords
+
+        Returns:
+        keyword_found (MatchResult): the first element extract_keywords would return, None if there is no keyword
+
+        Examples:
+                >>> keyword_processor = KeywordProcessor()
+                >>> keyword_processor.add_keyword('Big Apple', 'New York')
+                        >>> keyword_processor.add_keyword('Bay Area')
+                        >>> keyword_processor.first_match('I love Big Apple and Bay Area.')
+                >>> ('New York', 7, 16)
+         */
+        return matcher().first_match(sentence);
+    }
+
+    public int count_matches(String sentence) {
+        /*
+        Counts the keywords present in corpus that occur in the string, without building a result list.
+
+        Args:
+        sentence (str): Line of text where we will search for keywords
+
+        Returns:
+        count (int): the number of elements extract_keywords would return
+
+        Examples:
+                >>> keyword_processor = KeywordProcessor()
+                >>> keyword_processor.add_keyword('Big Apple', 'New York')
+                        >>> keyword_processor.add_keyword('Bay Area')
+                        >>> keyword_processor.count_matches('I love Big Apple and Bay Area.')
+                >>> 2
+         */
+        return matcher().count_matches(sentence);
+    }
+
+    /**
+     * 流式版本，见 {@link KeywordMatcher#contains_any(Reader)}
+     */
+    public boolean contains_any(Reader reader) throws IOException {
+        return matcher().contains_any(reader);
+    }
+
+    /**
+     * 不分配内存的 extract_keywords：匹配结果通过回调给出，见 {@link KeywordMatcher#extract_keywords(CharSequence, MatchConsumer)}
+     */
+    public void extract_keywords(CharSequence sentence, MatchConsumer consumer) {
+        matcher().extract_keywords(sentence, consumer);
+    }
+
+    /**
+     * 批量匹配，在 {@link ForkJoinPool#commonPool()} 上并行处理，返回的结果和 sentences 一一对应
+     */
+    public List<List<MatchResult>> extract_all(List<? extends CharSequence> sentences) {
+        return extract_all(sentences, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 批量匹配，见 {@link KeywordMatcher#extract_all(List, Executor)}。整批都用同一份快照
+     */
+    public List<List<MatchResult>> extract_all(List<? extends CharSequence> sentences, Executor executor) {
+        return matcher().extract_all(sentences, executor);
+    }
+
+    public Stream<List<MatchResult>> extract_all(Stream<? extends CharSequence> sentences) {
+        return extract_all(sentences, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 分批匹配，按顺序给出结果，见 {@link KeywordMatcher#extract_all(Stream, Executor)}。整个 Stream 都用同一份快照
+     */
+    public Stream<List<MatchResult>> extract_all(Stream<? extends CharSequence> sentences, Executor executor) {
+        return matcher().extract_all(sentences, executor);
+    }
+
+    /**
+     * 流式匹配，见 {@link KeywordMatcher#extract_keywords(Reader, MatchConsumer)}
+     */
+    public void extract_keywords(Reader reader, MatchConsumer consumer) throws IOException {
+        matcher().extract_keywords(reader, consumer);
+    }
+
+    /**
+     * 流式匹配，见 {@link KeywordMatcher#extract_keywords(ReadableByteChannel, Charset, MatchConsumer)}
+     */
+    public void extract_keywords(ReadableByteChannel channel, Charset charset, MatchConsumer consumer) throws IOException {
+        matcher().extract_keywords(channel, charset, consumer);
+    }
+
+    public String replace_keywords(String sentence) {
+        /*
+        Searches in the string for all keywords present in corpus.
+        Keywords present are replaced by the clean name and a new string is returned.
+
+        Args:
+        sentence (str): Line of text where we will replace keywords
+
+        Returns:
+        new_sentence (str): Line of text with replaced keywords
+
+        Examples:
+                >>> from flashtext import KeywordProcessor
+                >>> keyword_processor = KeywordProcessor()
+                >>> keyword_processor.add_keyword('Big Apple', 'New York')
+                        >>> keyword_processor.add_keyword('Bay Area')
+                        >>> new_sentence = keyword_processor.replace_keywords('I love Big Apple and bay area')
+                >>> new_sentence
+                >>> 'I love New York and Bay Area'
+         */
+
+        return matcher().replace_keywords(sentence);
+    }
+
+    /**
+     * 替换结果追加到 new_sentence，见 {@link KeywordMatcher#replace_keywords(CharSequence, StringBuilder)}
+     */
+    public void replace_keywords(CharSequence sentence, StringBuilder new_sentence) {
+        matcher().replace_keywords(sentence, new_sentence);
+    }
+
+    public void replace_keywords(CharSequence sentence, Appendable out) throws IOException {
+        matcher().replace_keywords(sentence, out);
+    }
+
+    /**
+     * 流式替换，见 {@link KeywordMatcher#replace_keywords(Reader, Appendable)}
+     */
+    public void replace_keywords(Reader reader, Appendable writer) throws IOException {
+        matcher().replace_keywords(reader, writer);
+    }
+
+    @Data
+    public static class MatchResult {
+        String found;
+        int start;
+        int end;
+
+        public MatchResult(String found, int start, int end) {
+            this.found = found;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+}
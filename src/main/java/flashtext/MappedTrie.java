@@ -0,0 +1,138 @@
+package flashtext;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 直接在 {@link TrieFile} 格式的缓冲区上读的字典树，缓冲区可以是映射进来的文件，也可以是堆外的 direct buffer，
+ * 用的时候不用反序列化。
+ * <p>
+ * 布局和 {@link CompiledTrie} 一样按广度优先编号，第 e 条边指向第 e + 1 个节点。clean name 去重之后单独存一张表，
+ * 每个节点只记表里的序号，用到的时候才解码成 String。解码过的 String 可以缓存在堆上，
+ * 不缓存的话每次匹配到都重新解码，堆占用和字典大小无关。
+ */
+public final class MappedTrie implements Trie {
+
+    private final ByteBuffer buffer;
+    private final int node_count;
+    private final int terms;
+    /**
+     * 各段在 buffer 里的起始位置
+     */
+    private final int first_edge;
+    private final int edge_keys;
+    private final int node_names;
+    private final int name_offsets;
+    private final int name_chars;
+    /**
+     * 解码过的 clean name，不缓存时是 null。多个线程同时解码也没关系，结果都一样
+     */
+    private final String[] names;
+
+    MappedTrie(ByteBuffer buffer, int position, int node_count, int name_count, int terms, boolean cache_clean_names) {
+        this.buffer = buffer;
+        this.node_count = node_count;
+        this.terms = terms;
+        this.first_edge = position;
+        this.edge_keys = this.first_edge + 4 * (node_count + 1);
+        this.node_names = this.edge_keys + 2 * (node_count - 1);
+        this.name_offsets = this.node_names + 4 * node_count;
+        this.name_chars = this.name_offsets + 4 * (name_count + 1);
+        this.names = cache_clean_names ? new String[name_count] : null;
+    }
+
+    /**
+     * @return 字典树各段加起来占多少字节，从 position 开始
+     */
+    static long section_bytes(int node_count, int name_count, int name_chars) {
+        return 4L * (node_count + 1) + 2L * (node_count - 1) + 4L * node_count + 4L * (name_count + 1) + 2L * name_chars;
+    }
+
+    @Override
+    public int root() {
+        return 0;
+    }
+
+    @Override
+    public int child(int node, char ch) {
+        int low = first_edge(node);
+        int high = first_edge(node + 1) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char key = this.buffer.getChar(this.edge_keys + 2 * mid);
+            if (key < ch)
+                low = mid + 1;
+            else if (key > ch)
+                high = mid - 1;
+            else
+                return mid + 1;
+        }
+        return NO_NODE;
+    }
+
+    @Override
+    public String clean_name(int node) {
+        int index = this.buffer.getInt(this.node_names + 4 * node);
+        if (index < 0)
+            return null;
+
+        String name = this.names != null ? this.names[index] : null;
+        if (name == null) {
+            int start = this.buffer.getInt(this.name_offsets + 4 * index);
+            int end = this.buffer.getInt(this.name_offsets + 4 * (index + 1));
+            char[] chars = new char[end - start];
+            for (int i = 0; i < chars.length; i++)
+                chars[i] = this.buffer.getChar(this.name_chars + 2 * (start + i));
+            name = new String(chars);
+            if (this.names != null)
+                this.names[index] = name;
+        }
+        return name;
+    }
+
+    @Override
+    public boolean is_keyword(int node) {
+        return this.buffer.getInt(this.node_names + 4 * node) >= 0;
+    }
+
+    @Override
+    public int child_count(int node) {
+        return first_edge(node + 1) - first_edge(node);
+    }
+
+    @Override
+    public char child_key(int node, int i) {
+        return this.buffer.getChar(this.edge_keys + 2 * (first_edge(node) + i));
+    }
+
+    @Override
+    public int child_node(int node, int i) {
+        return first_edge(node) + i + 1;
+    }
+
+    @Override
+    public int size() {
+        return this.terms;
+    }
+
+    public int node_count() {
+        return this.node_count;
+    }
+
+    /**
+     * @return 缓冲区是不是在堆外
+     */
+    public boolean is_direct() {
+        return this.buffer.isDirect();
+    }
+
+    /**
+     * @return 缓冲区的字节数
+     */
+    public int buffer_bytes() {
+        return this.buffer.limit();
+    }
+
+    private int first_edge(int node) {
+        return this.buffer.getInt(this.first_edge + 4 * node);
+    }
+}
@@ -0,0 +1,15 @@
+package flashtext;
+
+/**
+ * 逐个接收匹配结果的回调，不用为每个匹配创建 {@link KeywordProcessor.MatchResult}，也不用攒一个 List。
+ */
+@FunctionalInterface
+public interface MatchConsumer {
+
+    /**
+     * @param clean_name 匹配到的关键字的 clean name
+     * @param start      匹配在原文里的起始位置
+     * @param end        匹配在原文里的结束位置，不包含
+     */
+    void accept(String clean_name, int start, int end);
+}
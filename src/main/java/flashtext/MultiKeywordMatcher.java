@@ -0,0 +1,268 @@
+package flashtext;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多个字典合在一棵字典树里的不可变快照，由 {@link MultiKeywordProcessor#compile()} 生成。
+ * <p>
+ * 每个关键字结尾的节点挂着一组 (字典, clean name)，另外每个节点有两个位图，分别记录它上面、它的子树里挂了哪些字典的关键字。
+ * 每次匹配可以只选其中几个字典：匹配时看到的是只露出选中字典的关键字、以及通往它们的边的视图，
+ * 所以结果和把选中的字典单独建一个 {@link KeywordProcessor} 再匹配完全一样，但是文本只扫描一遍。
+ * <p>
+ * 可以被多个线程同时使用。
+ */
+public final class MultiKeywordMatcher {
+
+    /**
+     * 所有关键字的并集，clean name 是关键字本身，只用来标记哪些节点是关键字结尾
+     */
+    private final KeywordMatcher matcher;
+    private final CompiledTrie trie;
+    private final List<String> dictionaries;
+    private final Map<String, Integer> dictionary_ids;
+    /**
+     * 每个节点的位图占几个 long
+     */
+    private final int mask_words;
+    /**
+     * 节点 i 的位图是 masks[i * mask_words, (i + 1) * mask_words)，记录以节点 i 结尾的关键字在哪些字典里
+     */
+    private final long[] masks;
+    /**
+     * 格式同 masks，记录节点 i 的子树里（包括它自己）的关键字在哪些字典里
+     */
+    private final long[] subtree_masks;
+    /**
+     * 节点 i 的 payload 是 [first_payload[i], first_payload[i + 1])
+     */
+    private final int[] first_payload;
+    private final int[] payload_dictionaries;
+    private final String[] payload_clean_names;
+    /**
+     * 关键字结尾的节点，用 matcher 给出的 clean name 找回节点
+     */
+    private final Map<String, Integer> terminal_nodes;
+    private final long[] all;
+
+    /**
+     * @param keywords 每个字典里的关键字到 clean name，大小写不敏感的时候关键字已经转过小写了
+     */
+    MultiKeywordMatcher(List<String> dictionaries, Map<String, Map<String, String>> keywords,
+                        boolean case_sensitive, List<String> word_boundaries, CharClassifier char_classifier) {
+        this.dictionaries = Collections.unmodifiableList(new ArrayList<>(dictionaries));
+        this.dictionary_ids = new HashMap<>();
+        for (int i = 0; i < dictionaries.size(); i++)
+            this.dictionary_ids.put(dictionaries.get(i), i);
+        this.mask_words = Math.max(1, (dictionaries.size() + 63) >>> 6);
+
+        CharTrie union = new CharTrie();
+        for (Map<String, String> dictionary : keywords.values())
+            for (String keyword : dictionary.keySet())
+                union.put(keyword, keyword);
+        this.trie = CompiledTrie.of(union);
+        this.matcher = new KeywordMatcher(this.trie, case_sensitive, word_boundaries, 0, ScanListener.NONE, char_classifier, true, false);
+
+        // 先数每个节点有几个 payload，再按节点顺序排好
+        int node_count = this.trie.node_count();
+        int[] counts = new int[node_count + 1];
+        for (Map<String, String> dictionary : keywords.values())
+            for (String keyword : dictionary.keySet())
+                counts[node(keyword)]++;
+
+        this.first_payload = new int[node_count + 1];
+        for (int i = 0; i < node_count; i++)
+            this.first_payload[i + 1] = this.first_payload[i] + counts[i];
+        int total = this.first_payload[node_count];
+        this.payload_dictionaries = new int[total];
+        this.payload_clean_names = new String[total];
+        this.masks = new long[node_count * this.mask_words];
+        this.terminal_nodes = new HashMap<>();
+
+        int[] filled = new int[node_count];
+        for (Map.Entry<String, Map<String, String>> dictionary : keywords.entrySet()) {
+            int id = this.dictionary_ids.get(dictionary.getKey());
+            for (Map.Entry<String, String> entry : dictionary.getValue().entrySet()) {
+                int node = node(entry.getKey());
+                int slot = this.first_payload[node] + filled[node]++;
+                this.payload_dictionaries[slot] = id;
+                this.payload_clean_names[slot] = entry.getValue();
+                this.masks[node * this.mask_words + (id >>> 6)] |= 1L << id;
+                this.terminal_nodes.put(this.trie.clean_name(node), node);
+            }
+        }
+
+        // 广度优先编号，子节点的编号一定比父节点大，倒着合并就行
+        this.subtree_masks = this.masks.clone();
+        for (int node = node_count - 1; node >= 0; node--)
+            for (int i = 0; i < this.trie.child_count(node); i++) {
+                int child = this.trie.child_node(node, i);
+                for (int w = 0; w < this.mask_words; w++)
+                    this.subtree_masks[node * this.mask_words + w] |= this.subtree_masks[child * this.mask_words + w];
+            }
+        this.all = selection(this.dictionaries);
+    }
+
+    private boolean selected(long[] masks, int node, long[] selected) {
+        for (int w = 0; w < this.mask_words; w++)
+            if ((masks[node * this.mask_words + w] & selected[w]) != 0)
+                return true;
+        return false;
+    }
+
+    public List<String> dictionaries() {
+        return this.dictionaries;
+    }
+
+    public boolean case_sensitive() {
+        return this.matcher.case_sensitive();
+    }
+
+    public List<String> word_boundaries() {
+        return this.matcher.word_boundaries();
+    }
+
+    public CharClassifier char_classifier() {
+        return this.matcher.char_classifier();
+    }
+
+    /**
+     * @return 所有字典里关键字的个数之和
+     */
+    public int size() {
+        return this.payload_clean_names.length;
+    }
+
+    /**
+     * 在所有字典里匹配
+     */
+    public List<TaggedMatch> extract_keywords(String sentence) {
+        return extract_keywords(sentence, this.dictionaries);
+    }
+
+    /**
+     * 只在 dictionaries 这几个字典里匹配，同一段文字在多个字典里都有的时候每个字典给出一个结果
+     */
+    public List<TaggedMatch> extract_keywords(String sentence, Collection<String> dictionaries) {
+        List<TaggedMatch> keywords_extracted = new ArrayList<>();
+        extract_keywords(sentence, dictionaries, (dictionary, clean_name, start, end) ->
+                keywords_extracted.add(new TaggedMatch(dictionary, clean_name, start, end)));
+        return keywords_extracted;
+    }
+
+    public void extract_keywords(CharSequence sentence, Collection<String> dictionaries, TaggedMatchConsumer consumer) {
+        long[] selected = dictionaries == this.dictionaries ? this.all : selection(dictionaries);
+        this.matcher.extract_keywords(new SelectedTrie(selected), ScanText.of(sentence), (keyword, start, end) -> {
+            int node = this.terminal_nodes.get(keyword);
+            for (int p = this.first_payload[node]; p < this.first_payload[node + 1]; p++) {
+                int id = this.payload_dictionaries[p];
+                if ((selected[id >>> 6] & 1L << id) != 0)
+                    consumer.accept(this.dictionaries.get(id), this.payload_clean_names[p], start, end);
+            }
+        });
+    }
+
+    /**
+     * @return keyword 在各个字典里的 clean name，不在任何字典里时返回空的 Map
+     */
+    public Map<String, String> get_keyword(String keyword) {
+        Map<String, String> clean_names = new HashMap<>();
+        int node = node(this.matcher.case_sensitive() ? keyword : CaseFolding.fold(keyword));
+        if (node != Trie.NO_NODE)
+            for (int p = this.first_payload[node]; p < this.first_payload[node + 1]; p++)
+                clean_names.put(this.dictionaries.get(this.payload_dictionaries[p]), this.payload_clean_names[p]);
+        return clean_names;
+    }
+
+    private long[] selection(Collection<String> dictionaries) {
+        long[] selected = new long[this.mask_words];
+        for (String dictionary : dictionaries) {
+            Integer id = this.dictionary_ids.get(dictionary);
+            if (id == null)
+                throw new IllegalArgumentException("unknown dictionary: " + dictionary);
+            selected[id >>> 6] |= 1L << id;
+        }
+        return selected;
+    }
+
+    private int node(String keyword) {
+        int node = this.trie.root();
+        for (int i = 0; i < keyword.length() && node != Trie.NO_NODE; i++)
+            node = this.trie.child(node, keyword.charAt(i));
+        return node;
+    }
+
+    /**
+     * 只露出选中的字典里的关键字的视图。匹配只会用到 root / child / clean_name，
+     * 按下标遍历子节点的几个方法没有过滤，不要拿这个视图去遍历。
+     */
+    private final class SelectedTrie implements Trie {
+        private final long[] selected;
+
+        SelectedTrie(long[] selected) {
+            this.selected = selected;
+        }
+
+        @Override
+        public int root() {
+            return MultiKeywordMatcher.this.trie.root();
+        }
+
+        @Override
+        public int child(int node, char ch) {
+            int child = MultiKeywordMatcher.this.trie.child(node, ch);
+            return child != NO_NODE && selected(MultiKeywordMatcher.this.subtree_masks, child, this.selected) ? child : NO_NODE;
+        }
+
+        @Override
+        public String clean_name(int node) {
+            return is_keyword(node) ? MultiKeywordMatcher.this.trie.clean_name(node) : null;
+        }
+
+        @Override
+        public boolean is_keyword(int node) {
+            return selected(MultiKeywordMatcher.this.masks, node, this.selected);
+        }
+
+        @Override
+        public int child_count(int node) {
+            return MultiKeywordMatcher.this.trie.child_count(node);
+        }
+
+        @Override
+        public char child_key(int node, int i) {
+            return MultiKeywordMatcher.this.trie.child_key(node, i);
+        }
+
+        @Override
+        public int child_node(int node, int i) {
+            return MultiKeywordMatcher.this.trie.child_node(node, i);
+        }
+
+        @Override
+        public int size() {
+            return MultiKeywordMatcher.this.trie.size();
+        }
+    }
+
+    @Data
+    public static class TaggedMatch {
+        String dictionary;
+        String found;
+        int start;
+        int end;
+
+        public TaggedMatch(String dictionary, String found, int start, int end) {
+            this.dictionary = dictionary;
+            this.found = found;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
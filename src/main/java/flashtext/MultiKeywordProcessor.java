@@ -0,0 +1,169 @@
+package flashtext;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 把多个有名字的字典放在一棵字典树里，一次扫描同时匹配所有字典，每次匹配可以选只用其中哪几个字典。
+ * <p>
+ * 用法和 {@link KeywordProcessor} 一样，只是每个关键字多了一个所属的字典。同一个关键字可以在多个字典里，
+ * clean name 也可以不一样。查询和匹配走当前发布的不可变快照 {@link #matcher()}，字典改过之后下一次查询时重新编译。
+ */
+public class MultiKeywordProcessor {
+
+    public boolean case_sensitive;
+    public List<String> word_boundaries = Arrays.asList(new String[]{" ", "\t", "\n", ",", "."});
+    /**
+     * 见 {@link KeywordProcessor#char_classifier}
+     */
+    public CharClassifier char_classifier = CharClassifier.DEFAULT;
+
+    /**
+     * 字典名到 关键字 -> clean name，按字典加入的顺序排列
+     */
+    private final Map<String, Map<String, String>> dictionaries = new LinkedHashMap<>();
+    private final ReentrantLock write_lock = new ReentrantLock();
+    private final AtomicReference<MultiKeywordMatcher> matcher = new AtomicReference<>();
+    private volatile boolean dirty = true;
+
+    /**
+     * @return 关键字原来不在这个字典里则返回 true
+     */
+    public boolean add_keyword(String dictionary, String keyword, String clean_name) {
+        if (keyword.isEmpty())
+            return false;
+        if (clean_name == null || clean_name.isEmpty())
+            clean_name = keyword;
+        if (!this.case_sensitive)
+            keyword = CaseFolding.fold(keyword);
+
+        this.write_lock.lock();
+        try {
+            boolean status = this.dictionaries.computeIfAbsent(dictionary, name -> new HashMap<>())
+                    .put(keyword, clean_name) == null;
+            this.dirty = true;
+            return status;
+        } finally {
+            this.write_lock.unlock();
+        }
+    }
+
+    public boolean remove_keyword(String dictionary, String keyword) {
+        if (!this.case_sensitive)
+            keyword = CaseFolding.fold(keyword);
+
+        this.write_lock.lock();
+        try {
+            Map<String, String> keywords = this.dictionaries.get(dictionary);
+            boolean status = keywords != null && keywords.remove(keyword) != null;
+            this.dirty |= status;
+            return status;
+        } finally {
+            this.write_lock.unlock();
+        }
+    }
+
+    /**
+     * 格式和 {@link KeywordProcessor#add_keywords_from_dict(Map)} 一样，clean name 到关键字列表
+     */
+    public void add_keywords_from_dict(String dictionary, Map<String, ArrayList<String>> keyword_dict) {
+        this.write_lock.lock();
+        try {
+            for (Map.Entry<String, ArrayList<String>> entry : keyword_dict.entrySet())
+                for (String keyword : entry.getValue())
+                    add_keyword(dictionary, keyword, entry.getKey());
+        } finally {
+            this.write_lock.unlock();
+        }
+    }
+
+    public void add_keywords_from_list(String dictionary, ArrayList<String> keyword_list) {
+        this.write_lock.lock();
+        try {
+            for (String keyword : keyword_list)
+                add_keyword(dictionary, keyword, null);
+        } finally {
+            this.write_lock.unlock();
+        }
+    }
+
+    /**
+     * 把一个已有的 {@link KeywordProcessor} 的所有关键字作为一个字典加进来，方便把多个 processor 合并成一个
+     */
+    public void add_keywords_from_processor(String dictionary, KeywordProcessor processor) {
+        Map<String, String> keywords = processor.get_all_keywords();
+        this.write_lock.lock();
+        try {
+            for (Map.Entry<String, String> entry : keywords.entrySet())
+                add_keyword(dictionary, entry.getKey(), entry.getValue());
+        } finally {
+            this.write_lock.unlock();
+        }
+    }
+
+    /**
+     * 把当前的所有字典编译成不可变的 {@link MultiKeywordMatcher} 并发布出去
+     */
+    public MultiKeywordMatcher compile() {
+        this.write_lock.lock();
+        try {
+            MultiKeywordMatcher compiled = new MultiKeywordMatcher(new ArrayList<>(this.dictionaries.keySet()),
+                    this.dictionaries, this.case_sensitive, this.word_boundaries, this.char_classifier);
+            this.matcher.set(compiled);
+            this.dirty = false;
+            return compiled;
+        } finally {
+            this.write_lock.unlock();
+        }
+    }
+
+    /**
+     * 当前发布的快照，规则和 {@link KeywordProcessor#matcher()} 一样：改过之后没有线程在修改的话就重新编译，否则先用旧的
+     */
+    public MultiKeywordMatcher matcher() {
+        MultiKeywordMatcher current = this.matcher.get();
+        if (current != null && !is_stale(current))
+            return current;
+
+        if (current == null)
+            this.write_lock.lock();
+        else if (!this.write_lock.tryLock())
+            return current;
+        try {
+            current = this.matcher.get();
+            return current != null && !is_stale(current) ? current : compile();
+        } finally {
+            this.write_lock.unlock();
+        }
+    }
+
+    private boolean is_stale(MultiKeywordMatcher current) {
+        return this.dirty
+                || current.case_sensitive() != this.case_sensitive
+                || !current.word_boundaries().equals(this.word_boundaries)
+                || current.char_classifier() != this.char_classifier;
+    }
+
+    /**
+     * @return keyword 在各个字典里的 clean name
+     */
+    public Map<String, String> get_keyword(String keyword) {
+        return matcher().get_keyword(keyword);
+    }
+
+    public List<MultiKeywordMatcher.TaggedMatch> extract_keywords(String sentence) {
+        return matcher().extract_keywords(sentence);
+    }
+
+    /**
+     * 只在 dictionaries 这几个字典里匹配，见 {@link MultiKeywordMatcher#extract_keywords(String, Collection)}
+     */
+    public List<MultiKeywordMatcher.TaggedMatch> extract_keywords(String sentence, Collection<String> dictionaries) {
+        return matcher().extract_keywords(sentence, dictionaries);
+    }
+
+    public void extract_keywords(CharSequence sentence, Collection<String> dictionaries, TaggedMatchConsumer consumer) {
+        matcher().extract_keywords(sentence, dictionaries, consumer);
+    }
+}
@@ -0,0 +1,135 @@
+package flashtext;
+
+import java.util.Arrays;
+
+/**
+ * 整篇文本的快速排除：字典里每个关键字的前三个字符（不够三个就是整个关键字，转过大小写之后）放进一个 Bloom filter，
+ * 文本里连续的非忽略字符都查不到的话，这篇文本一定匹配不到任何关键字，不用再走字典树。
+ * <p>
+ * 匹配的时候跳过忽略的字符，其他字符必须和字典树上的一条路径一一对应，所以关键字的前缀一定出现在去掉忽略字符之后的文本里，
+ * 不会漏掉匹配，只会有少量误判：查不到就一定可以排除，查到了不一定真的能匹配到。
+ * 文本越短、字典越小，排除的比例越高，适合大量短文本、绝大部分都不含关键字的场景。
+ * <p>
+ * 一个字符的关键字用位图，两个和三个字符的前缀放在分块的 Bloom filter 里，每个前缀的几位都在同一个 long 里，查一次只访问一次内存。
+ * <p>
+ * 不可变，可以被多个线程同时使用。
+ */
+final class NgramSignature {
+
+    /**
+     * 每个前缀占多少位
+     */
+    private static final int BITS_PER_PREFIX = 16;
+
+    private final long[] singles = new long[(Character.MAX_VALUE + 1) / 64];
+    private final long[] blocks;
+    private final int block_mask;
+    /**
+     * 有没有两个字符的关键字，没有的话不用查两个字符的前缀
+     */
+    private final boolean has_pairs;
+
+    private NgramSignature(Trie trie) {
+        long[] prefixes = new long[16];
+        int count = 0;
+        boolean has_pairs = false;
+
+        int root = trie.root();
+        for (int i = 0; i < trie.child_count(root); i++) {
+            char c0 = trie.child_key(root, i);
+            int n1 = trie.child_node(root, i);
+            if (trie.is_keyword(n1))
+                this.singles[c0 >>> 6] |= 1L << c0;
+            for (int j = 0; j < trie.child_count(n1); j++) {
+                char c1 = trie.child_key(n1, j);
+                int n2 = trie.child_node(n1, j);
+                if (trie.is_keyword(n2)) {
+                    if (count == prefixes.length)
+                        prefixes = Arrays.copyOf(prefixes, count * 2);
+                    prefixes[count++] = pair(c0, c1);
+                    has_pairs = true;
+                }
+                for (int k = 0; k < trie.child_count(n2); k++) {
+                    if (count == prefixes.length)
+                        prefixes = Arrays.copyOf(prefixes, count * 2);
+                    prefixes[count++] = triple(c0, c1, trie.child_key(n2, k));
+                }
+            }
+        }
+
+        int wanted = (int) Math.max(1, Math.min(1 << 28, (long) count * BITS_PER_PREFIX / 64));
+        int blocks = Integer.highestOneBit(wanted * 2 - 1);
+        this.blocks = new long[blocks];
+        this.block_mask = blocks - 1;
+        this.has_pairs = has_pairs;
+        for (int i = 0; i < count; i++) {
+            long hash = mix(prefixes[i]);
+            this.blocks[(int) (hash >>> 32) & this.block_mask] |= bits(hash);
+        }
+    }
+
+    /**
+     * @return 字典的根节点本身是关键字的时候每篇文本都可能匹配到，返回 null
+     */
+    static NgramSignature of(Trie trie) {
+        return trie.is_keyword(trie.root()) ? null : new NgramSignature(trie);
+    }
+
+    /**
+     * @param matcher 用它的大小写和忽略字符的规则
+     * @return false 表示 text 里一定没有关键字
+     */
+    boolean may_match(ScanText text, KeywordMatcher matcher) {
+        char c0 = 0;
+        char c1 = 0;
+        int seen = 0;
+        for (int i = 0; text.has(i); i++) {
+            char ch = matcher.fold(text.at(i));
+            if (matcher.is_ignored(ch))
+                continue;
+            if ((this.singles[ch >>> 6] & (1L << ch)) != 0)
+                return true;
+            if (seen >= 1 && this.has_pairs && contains(pair(c1, ch)))
+                return true;
+            if (seen >= 2 && contains(triple(c0, c1, ch)))
+                return true;
+            c0 = c1;
+            c1 = ch;
+            seen++;
+        }
+        return false;
+    }
+
+    private boolean contains(long prefix) {
+        long hash = mix(prefix);
+        long bits = bits(hash);
+        return (this.blocks[(int) (hash >>> 32) & this.block_mask] & bits) == bits;
+    }
+
+    private static long pair(char c0, char c1) {
+        return 1L << 48 | (long) c0 << 16 | c1;
+    }
+
+    private static long triple(char c0, char c1, char c2) {
+        return 2L << 48 | (long) c0 << 32 | (long) c1 << 16 | c2;
+    }
+
+    /**
+     * 块里的 4 位，用哈希值的低 24 位
+     */
+    private static long bits(long hash) {
+        return 1L << hash | 1L << (hash >>> 6) | 1L << (hash >>> 12) | 1L << (hash >>> 18);
+    }
+
+    /**
+     * MurmurHash3 的 fmix64
+     */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb93e3c5e4c63L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
@@ -0,0 +1,458 @@
+package flashtext;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 从排好序的关键字一次性自底向上建出来的不可变字典树，见 {@link KeywordMatcher#build}。
+ * <p>
+ * 和 {@link CompiledTrie} 一样是紧凑的数组布局，但是后缀相同、clean name 也相同的子树只存一份，
+ * 所以一个节点可能有多条入边，边上要多存一个指向的节点：
+ * - {@link #first_edge}：节点 i 的边是 [first_edge[i], first_edge[i + 1])，按字符升序排列；
+ * - {@link #edge_keys} / {@link #edge_targets}：每条边上的字符和指向的节点；
+ * - {@link #clean_names}：每个节点的 clean name。
+ * 子节点总是比父节点先建好，所以根节点是最后一个。
+ * <p>
+ * 建的时候按首字符把关键字切成若干片，每片并行建成一棵子树，只在片内共享后缀，最后拼到同一个根下面。
+ */
+public final class PackedTrie implements Trie {
+
+    /**
+     * 每个核分几片，和 {@link KeywordMatcher} 批量匹配的分片一样
+     */
+    private static final int SLICES_PER_CORE = 4;
+    private static final int INSERTION_SORT_THRESHOLD = 12;
+
+    private final int[] first_edge;
+    private final char[] edge_keys;
+    private final int[] edge_targets;
+    private final String[] clean_names;
+    private final int terms;
+
+    private PackedTrie(int[] first_edge, char[] edge_keys, int[] edge_targets, String[] clean_names, int terms) {
+        this.first_edge = first_edge;
+        this.edge_keys = edge_keys;
+        this.edge_targets = edge_targets;
+        this.clean_names = clean_names;
+        this.terms = terms;
+    }
+
+    /**
+     * 先按首字符把关键字分桶，再把相邻的桶分成若干片，每片交给 executor 排序、去重并建成子树，
+     * 所以排序和建树都是并行的。
+     *
+     * @param pairs 每一对是已经转好大小写的关键字和 clean name，不能有空串。同一个关键字出现多次时以最后一次为准
+     */
+    static PackedTrie build(String[][] pairs, Executor executor) {
+        int count = pairs.length;
+        int[] bucket_starts = new int[Character.MAX_VALUE + 2];
+        for (String[] pair : pairs)
+            bucket_starts[pair[0].charAt(0) + 1]++;
+        for (int ch = 0; ch <= Character.MAX_VALUE; ch++)
+            bucket_starts[ch + 1] += bucket_starts[ch];
+
+        // 计数排序是稳定的，同一个关键字仍然保持原来的先后顺序
+        String[][] bucketed = new String[count][];
+        int[] next = Arrays.copyOf(bucket_starts, Character.MAX_VALUE + 1);
+        for (String[] pair : pairs)
+            bucketed[next[pair[0].charAt(0)]++] = pair;
+
+        int slices = Math.max(1, Math.min(count, Runtime.getRuntime().availableProcessors() * SLICES_PER_CORE));
+        int[] bounds = new int[slices + 1];
+        int bound_count = 1;
+        for (int ch = 0, slice = 1; ch <= Character.MAX_VALUE && slice < slices; ch++) {
+            // 切分点只落在桶的边界上，同一个首字符的关键字都在同一片里
+            int end = bucket_starts[ch + 1];
+            if (end >= (long) count * slice / slices) {
+                if (end > bounds[bound_count - 1] && end < count)
+                    bounds[bound_count++] = end;
+                while (slice < slices && end >= (long) count * slice / slices)
+                    slice++;
+            }
+        }
+        bounds[bound_count] = count;
+
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[bound_count];
+        for (int slice = 0; slice < bound_count; slice++) {
+            int from = bounds[slice];
+            int to = bounds[slice + 1];
+            tasks[slice] = CompletableFuture.supplyAsync(() -> new SliceBuilder().build(bucketed, from, to), executor);
+        }
+
+        SliceBuilder[] built = new SliceBuilder[bound_count];
+        try {
+            for (int slice = 0; slice < bound_count; slice++)
+                built[slice] = (SliceBuilder) tasks[slice].join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+        return merge(built);
+    }
+
+    /**
+     * 每片的根节点都是最后一个节点，它的边也是最后加的。其余的节点和边按片依次拼起来，
+     * 各片根节点的边合起来就是新的根节点的边，各片的首字符互不相交而且是升序的，合起来仍然有序。
+     */
+    private static PackedTrie merge(SliceBuilder[] slices) {
+        int node_count = 1;
+        int edge_count = 0;
+        int terms = 0;
+        for (SliceBuilder slice : slices) {
+            terms += slice.terms;
+            node_count += slice.node_count - 1;
+            edge_count += slice.edge_count;
+        }
+
+        int[] first_edge = new int[node_count + 1];
+        char[] edge_keys = new char[edge_count];
+        int[] edge_targets = new int[edge_count];
+        String[] clean_names = new String[node_count];
+
+        int node_base = 0;
+        int edge_base = 0;
+        for (SliceBuilder slice : slices) {
+            int nodes = slice.node_count - 1;
+            int edges = slice.first_edge[nodes];
+            for (int node = 0; node < nodes; node++)
+                first_edge[node_base + node] = edge_base + slice.first_edge[node];
+            System.arraycopy(slice.clean_names, 0, clean_names, node_base, nodes);
+            System.arraycopy(slice.edge_keys, 0, edge_keys, edge_base, edges);
+            for (int edge = 0; edge < edges; edge++)
+                edge_targets[edge_base + edge] = node_base + slice.edge_targets[edge];
+            node_base += nodes;
+            edge_base += edges;
+        }
+
+        int root = node_count - 1;
+        first_edge[root] = edge_base;
+        int slice_base = 0;
+        for (SliceBuilder slice : slices) {
+            int nodes = slice.node_count - 1;
+            for (int edge = slice.first_edge[nodes]; edge < slice.edge_count; edge++) {
+                edge_keys[edge_base] = slice.edge_keys[edge];
+                edge_targets[edge_base++] = slice_base + slice.edge_targets[edge];
+            }
+            slice_base += nodes;
+        }
+        first_edge[node_count] = edge_base;
+
+        return new PackedTrie(first_edge, edge_keys, edge_targets, clean_names, terms);
+    }
+
+    @Override
+    public int root() {
+        return this.clean_names.length - 1;
+    }
+
+    @Override
+    public int child(int node, char ch) {
+        int edge = Arrays.binarySearch(this.edge_keys, this.first_edge[node], this.first_edge[node + 1], ch);
+        return edge >= 0 ? this.edge_targets[edge] : NO_NODE;
+    }
+
+    @Override
+    public String clean_name(int node) {
+        return this.clean_names[node];
+    }
+
+    @Override
+    public int child_count(int node) {
+        return this.first_edge[node + 1] - this.first_edge[node];
+    }
+
+    @Override
+    public char child_key(int node, int i) {
+        return this.edge_keys[this.first_edge[node] + i];
+    }
+
+    @Override
+    public int child_node(int node, int i) {
+        return this.edge_targets[this.first_edge[node] + i];
+    }
+
+    @Override
+    public int size() {
+        return this.terms;
+    }
+
+    /**
+     * @return 共享后缀之后实际存下来的节点数
+     */
+    public int node_count() {
+        return this.clean_names.length;
+    }
+
+    /**
+     * 估算占用的堆内存，口径和 {@link CharTrie#estimated_bytes()} 一样
+     */
+    public long estimated_bytes() {
+        return 16L + ((16L + 4L * this.first_edge.length + 7) & ~7L)
+                + ((16L + 2L * this.edge_keys.length + 7) & ~7L)
+                + ((16L + 4L * this.edge_targets.length + 7) & ~7L)
+                + ((16L + 4L * this.clean_names.length + 7) & ~7L);
+    }
+
+    /**
+     * 建一片的状态。按顺序加关键字，和上一个关键字的公共前缀以下的节点不会再有新的子节点了，
+     * 就把它们定下来：已经有一模一样的节点（clean name 相同，边和指向的节点也都相同）就用已有的，
+     * 没有的话编号并登记。定下来的节点的边依次追加到数组末尾，所以每个节点的边是连续的一段。
+     */
+    private static final class SliceBuilder {
+
+        int terms;
+        int node_count;
+        int edge_count;
+        int[] first_edge = new int[1024];
+        char[] edge_keys = new char[1024];
+        int[] edge_targets = new int[1024];
+        String[] clean_names = new String[1024];
+        /**
+         * 开放寻址的登记表，存的是节点编号加一，0 表示空位。节点的 hash 放在旁边，比较的时候少读一次节点
+         */
+        private int[] register = new int[2048];
+        private int[] register_hashes = new int[2048];
+
+        /**
+         * 这一片的关键字、clean name 和原来的先后顺序，排序的时候一起挪，建完就丢掉
+         */
+        private String[] keys;
+        private String[] names;
+        private int[] order;
+
+        /**
+         * 还没定下来的那条路径，第 d 层是当前关键字前 d 个字符对应的节点
+         */
+        private char[][] pending_keys = new char[16][];
+        private int[][] pending_targets = new int[16][];
+        private int[] pending_counts = new int[16];
+        private String[] pending_names = new String[16];
+
+        SliceBuilder build(String[][] pairs, int from, int to) {
+            int count = to - from;
+            this.keys = new String[count];
+            this.names = new String[count];
+            this.order = new int[count];
+            for (int i = 0; i < count; i++) {
+                this.keys[i] = pairs[from + i][0];
+                this.names[i] = pairs[from + i][1];
+                this.order[i] = i;
+            }
+            sort(0, count, 0);
+
+            open(0);
+            String previous = "";
+            for (int i = 0; i < count; i++) {
+                String keyword = this.keys[i];
+                // 排序不稳定，相同的关键字要看原来的先后顺序，以最后加的为准
+                String clean_name = this.names[i];
+                int latest = this.order[i];
+                while (i + 1 < count && this.keys[i + 1].equals(keyword)) {
+                    i++;
+                    if (this.order[i] > latest) {
+                        latest = this.order[i];
+                        clean_name = this.names[i];
+                    }
+                }
+
+                int common = 0;
+                int max = Math.min(previous.length(), keyword.length());
+                while (common < max && previous.charAt(common) == keyword.charAt(common))
+                    common++;
+
+                for (int depth = previous.length(); depth > common; depth--)
+                    add_pending_edge(depth - 1, previous.charAt(depth - 1), freeze(depth, true));
+                for (int depth = common + 1; depth <= keyword.length(); depth++)
+                    open(depth);
+                this.pending_names[keyword.length()] = clean_name;
+                this.terms++;
+                previous = keyword;
+            }
+            for (int depth = previous.length(); depth > 0; depth--)
+                add_pending_edge(depth - 1, previous.charAt(depth - 1), freeze(depth, true));
+            // 根节点不参与共享
+            freeze(0, false);
+
+            this.keys = null;
+            this.names = null;
+            this.order = null;
+            return this;
+        }
+
+        /**
+         * 三路基数快排：[from, to) 里的关键字前 depth 个字符都相同，按第 depth 个字符分成小于、等于、大于三段，
+         * 等于的那段接着比下一个字符。比 compareTo 的归并排序少很多次从头比较
+         */
+        private void sort(int from, int to, int depth) {
+            while (to - from > INSERTION_SORT_THRESHOLD) {
+                int pivot = char_at(this.keys[median_of_three(from, (from + to) >>> 1, to - 1, depth)], depth);
+                int less = from;
+                int greater = to - 1;
+                int i = from;
+                while (i <= greater) {
+                    int ch = char_at(this.keys[i], depth);
+                    if (ch < pivot)
+                        swap(less++, i++);
+                    else if (ch > pivot)
+                        swap(i, greater--);
+                    else
+                        i++;
+                }
+                sort(from, less, depth);
+                sort(greater + 1, to, depth);
+                // 等于的那段已经到了关键字末尾，都是同一个关键字
+                if (pivot < 0)
+                    return;
+                from = less;
+                to = greater + 1;
+                depth++;
+            }
+
+            for (int i = from + 1; i < to; i++)
+                for (int j = i; j > from && this.keys[j - 1].compareTo(this.keys[j]) > 0; j--)
+                    swap(j - 1, j);
+        }
+
+        private int median_of_three(int a, int b, int c, int depth) {
+            int x = char_at(this.keys[a], depth);
+            int y = char_at(this.keys[b], depth);
+            int z = char_at(this.keys[c], depth);
+            if (x < y)
+                return y < z ? b : x < z ? c : a;
+            return x < z ? a : y < z ? c : b;
+        }
+
+        private static int char_at(String keyword, int depth) {
+            return depth < keyword.length() ? keyword.charAt(depth) : -1;
+        }
+
+        private void swap(int i, int j) {
+            String key = this.keys[i];
+            this.keys[i] = this.keys[j];
+            this.keys[j] = key;
+            String name = this.names[i];
+            this.names[i] = this.names[j];
+            this.names[j] = name;
+            int position = this.order[i];
+            this.order[i] = this.order[j];
+            this.order[j] = position;
+        }
+
+        private void open(int depth) {
+            if (depth == this.pending_counts.length) {
+                int length = depth * 2;
+                this.pending_keys = Arrays.copyOf(this.pending_keys, length);
+                this.pending_targets = Arrays.copyOf(this.pending_targets, length);
+                this.pending_counts = Arrays.copyOf(this.pending_counts, length);
+                this.pending_names = Arrays.copyOf(this.pending_names, length);
+            }
+            if (this.pending_keys[depth] == null) {
+                this.pending_keys[depth] = new char[4];
+                this.pending_targets[depth] = new int[4];
+            }
+            this.pending_counts[depth] = 0;
+            this.pending_names[depth] = null;
+        }
+
+        private void add_pending_edge(int depth, char key, int target) {
+            int count = this.pending_counts[depth];
+            if (count == this.pending_keys[depth].length) {
+                this.pending_keys[depth] = Arrays.copyOf(this.pending_keys[depth], count * 2);
+                this.pending_targets[depth] = Arrays.copyOf(this.pending_targets[depth], count * 2);
+            }
+            this.pending_keys[depth][count] = key;
+            this.pending_targets[depth][count] = target;
+            this.pending_counts[depth] = count + 1;
+        }
+
+        /**
+         * @return 定下来的节点编号
+         */
+        private int freeze(int depth, boolean share) {
+            int count = this.pending_counts[depth];
+            char[] keys = this.pending_keys[depth];
+            int[] targets = this.pending_targets[depth];
+            String clean_name = this.pending_names[depth];
+
+            int hash = Objects.hashCode(clean_name);
+            for (int i = 0; i < count; i++)
+                hash = (hash * 31 + keys[i]) * 31 + targets[i];
+
+            int mask = this.register.length - 1;
+            int slot = mix(hash) & mask;
+            if (share) {
+                for (int id = this.register[slot] - 1; id >= 0; id = this.register[slot] - 1) {
+                    if (this.register_hashes[slot] == hash && same(id, clean_name, keys, targets, count))
+                        return id;
+                    slot = (slot + 1) & mask;
+                }
+            }
+
+            int id = this.node_count++;
+            ensure_capacity(id + 2, this.edge_count + count);
+            this.first_edge[id] = this.edge_count;
+            System.arraycopy(keys, 0, this.edge_keys, this.edge_count, count);
+            System.arraycopy(targets, 0, this.edge_targets, this.edge_count, count);
+            this.edge_count += count;
+            this.first_edge[id + 1] = this.edge_count;
+            this.clean_names[id] = clean_name;
+
+            if (share) {
+                this.register[slot] = id + 1;
+                this.register_hashes[slot] = hash;
+                if (this.node_count * 2 > this.register.length)
+                    rehash();
+            }
+            return id;
+        }
+
+        private boolean same(int id, String clean_name, char[] keys, int[] targets, int count) {
+            int from = this.first_edge[id];
+            if (this.first_edge[id + 1] - from != count || !Objects.equals(this.clean_names[id], clean_name))
+                return false;
+            for (int i = 0; i < count; i++)
+                if (this.edge_keys[from + i] != keys[i] || this.edge_targets[from + i] != targets[i])
+                    return false;
+            return true;
+        }
+
+        private void ensure_capacity(int nodes, int edges) {
+            if (nodes > this.first_edge.length) {
+                int length = Math.max(nodes, this.first_edge.length * 2);
+                this.first_edge = Arrays.copyOf(this.first_edge, length);
+                this.clean_names = Arrays.copyOf(this.clean_names, length);
+            }
+            if (edges > this.edge_keys.length) {
+                int length = Math.max(edges, this.edge_keys.length * 2);
+                this.edge_keys = Arrays.copyOf(this.edge_keys, length);
+                this.edge_targets = Arrays.copyOf(this.edge_targets, length);
+            }
+        }
+
+        private void rehash() {
+            int[] register = new int[this.register.length * 2];
+            int[] register_hashes = new int[register.length];
+            int mask = register.length - 1;
+            for (int i = 0; i < this.register.length; i++) {
+                if (this.register[i] == 0)
+                    continue;
+                int slot = mix(this.register_hashes[i]) & mask;
+                while (register[slot] != 0)
+                    slot = (slot + 1) & mask;
+                register[slot] = this.register[i];
+                register_hashes[slot] = this.register_hashes[i];
+            }
+            this.register = register;
+            this.register_hashes = register_hashes;
+        }
+
+        private static int mix(int hash) {
+            hash *= 0x9e3779b9;
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package flashtext;
+
+/**
+ * 观察 extract_keywords 扫描过程的监听器，通过 {@link KeywordProcessor#scan_listener} 或者
+ * {@link KeywordMatcher#with_listener(ScanListener)} 挂上去，默认是什么都不做的 {@link #NONE}。
+ * <p>
+ * 计数在扫描过程中只累加在局部变量里，每次匹配结束后调用一次 {@link #on_extract}，
+ * 所以不挂监听器的时候基本没有额外开销。方法可能被多个线程同时调用。
+ * Aho-Corasick 引擎不会通知监听器。
+ */
+public interface ScanListener {
+
+    ScanListener NONE = new ScanListener() {
+    };
+
+    /**
+     * 每匹配到一个关键字调用一次
+     */
+    default void on_match(String clean_name) {
+    }
+
+    /**
+     * 每次匹配结束时调用一次，流式匹配就是整个流结束的时候。计数都是 long，很长的流也不会溢出。
+     *
+     * @param chars_scanned 读了多少次字符，往回退之后重新读的也算
+     * @param nodes_visited 在字典树里往下走了多少步
+     * @param restarts      匹配失败或者匹配完一个关键字之后回到根节点的次数
+     * @param backtracks    匹配完一个关键字、或者跳到下一个分界之后往回退一个字符的次数
+     * @param nanos         耗时
+     */
+    default void on_extract(long chars_scanned, long nodes_visited, long restarts, long backtracks, long nanos) {
+    }
+
+    /**
+     * 开了 {@link KeywordProcessor#quick_reject} 的时候，每段文本扫描之前调用一次。被排除的文本不再扫描，也不会调用 {@link #on_extract}
+     *
+     * @param length   文本的长度
+     * @param rejected 是不是被排除了
+     * @param nanos    排除检查的耗时
+     */
+    default void on_quick_check(int length, boolean rejected, long nanos) {
+    }
+}
@@ -0,0 +1,183 @@
+package flashtext;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 现成的 {@link ScanListener}：累计扫描的计数、每个 clean name 匹配到的次数，每次匹配耗时的直方图，
+ * 以及 {@link KeywordProcessor#quick_reject} 排除了多少文本、省下了多少时间。
+ * 可以被多个线程同时更新。
+ * <p>
+ * 直方图按 2 的幂分桶，第 i 个桶是耗时在 [2^i, 2^(i+1)) 纳秒之间的次数。
+ */
+public class ScanMetrics implements ScanListener {
+
+    private final LongAdder extractions = new LongAdder();
+    private final LongAdder chars_scanned = new LongAdder();
+    private final LongAdder nodes_visited = new LongAdder();
+    private final LongAdder restarts = new LongAdder();
+    private final LongAdder backtracks = new LongAdder();
+    private final LongAdder scan_nanos = new LongAdder();
+    private final LongAdder quick_checks = new LongAdder();
+    private final LongAdder quick_rejects = new LongAdder();
+    private final LongAdder chars_rejected = new LongAdder();
+    private final LongAdder quick_check_nanos = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> hits = new ConcurrentHashMap<>();
+    private final AtomicLongArray latency = new AtomicLongArray(64);
+
+    @Override
+    public void on_match(String clean_name) {
+        LongAdder counter = this.hits.get(clean_name);
+        if (counter == null)
+            counter = this.hits.computeIfAbsent(clean_name, name -> new LongAdder());
+        counter.increment();
+    }
+
+    @Override
+    public void on_extract(long chars_scanned, long nodes_visited, long restarts, long backtracks, long nanos) {
+        this.extractions.increment();
+        this.chars_scanned.add(chars_scanned);
+        this.nodes_visited.add(nodes_visited);
+        this.restarts.add(restarts);
+        this.backtracks.add(backtracks);
+        this.scan_nanos.add(nanos);
+        this.latency.incrementAndGet(63 - Long.numberOfLeadingZeros(Math.max(nanos, 1)));
+    }
+
+    @Override
+    public void on_quick_check(int length, boolean rejected, long nanos) {
+        this.quick_checks.increment();
+        if (rejected) {
+            this.quick_rejects.increment();
+            this.chars_rejected.add(length);
+        }
+        this.quick_check_nanos.add(nanos);
+    }
+
+    public long extractions() {
+        return this.extractions.sum();
+    }
+
+    public long chars_scanned() {
+        return this.chars_scanned.sum();
+    }
+
+    public long nodes_visited() {
+        return this.nodes_visited.sum();
+    }
+
+    public long restarts() {
+        return this.restarts.sum();
+    }
+
+    public long backtracks() {
+        return this.backtracks.sum();
+    }
+
+    /**
+     * @return 扫描的总耗时，不包括排除检查
+     */
+    public long scan_nanos() {
+        return this.scan_nanos.sum();
+    }
+
+    public long quick_checks() {
+        return this.quick_checks.sum();
+    }
+
+    public long quick_rejects() {
+        return this.quick_rejects.sum();
+    }
+
+    /**
+     * @return 被排除的文本占检查过的文本的比例，还没有检查过时是 0
+     */
+    public double reject_rate() {
+        long checks = this.quick_checks.sum();
+        return checks == 0 ? 0 : (double) this.quick_rejects.sum() / checks;
+    }
+
+    /**
+     * @return 被排除的文本一共有多少个字符
+     */
+    public long chars_rejected() {
+        return this.chars_rejected.sum();
+    }
+
+    /**
+     * @return 排除检查的总耗时，被排除的和没被排除的文本都算
+     */
+    public long quick_check_nanos() {
+        return this.quick_check_nanos.sum();
+    }
+
+    /**
+     * 按扫描过的文本每个字符的平均耗时，估算被排除的文本如果扫描要花多久，再减去排除检查的总耗时。
+     *
+     * @return 估算省下的纳秒数，负数说明排除检查得不偿失，还没有扫描过时是 0
+     */
+    public long saved_nanos() {
+        long chars_scanned = this.chars_scanned.sum();
+        if (chars_scanned == 0)
+            return 0;
+        double nanos_per_char = (double) this.scan_nanos.sum() / chars_scanned;
+        return (long) (this.chars_rejected.sum() * nanos_per_char) - this.quick_check_nanos.sum();
+    }
+
+    /**
+     * @return 每个 clean name 匹配到的次数
+     */
+    public Map<String, Long> hits() {
+        Map<String, Long> hits = new HashMap<>();
+        this.hits.forEach((clean_name, counter) -> hits.put(clean_name, counter.sum()));
+        return hits;
+    }
+
+    public long[] latency_histogram() {
+        long[] histogram = new long[this.latency.length()];
+        for (int i = 0; i < histogram.length; i++)
+            histogram[i] = this.latency.get(i);
+        return histogram;
+    }
+
+    /**
+     * @param quantile 0 到 1 之间
+     * @return 耗时的分位数，精确到所在桶的上界，没有数据时返回 0
+     */
+    public long latency_quantile(double quantile) {
+        long[] histogram = latency_histogram();
+        long total = 0;
+        for (long count : histogram)
+            total += count;
+        if (total == 0)
+            return 0;
+
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= rank && histogram[i] > 0)
+                return i == 62 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    public void reset() {
+        this.extractions.reset();
+        this.chars_scanned.reset();
+        this.nodes_visited.reset();
+        this.restarts.reset();
+        this.backtracks.reset();
+        this.scan_nanos.reset();
+        this.quick_checks.reset();
+        this.quick_rejects.reset();
+        this.chars_rejected.reset();
+        this.quick_check_nanos.reset();
+        this.hits.clear();
+        for (int i = 0; i < this.latency.length(); i++)
+            this.latency.set(i, 0);
+    }
+}
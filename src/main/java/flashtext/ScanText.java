@@ -0,0 +1,166 @@
+package flashtext;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * 匹配时扫描的文本，可以是内存里的 {@link CharSequence}，也可以是边读边扫的 {@link Reader}。
+ * <p>
+ * 位置都是相对整段文本开头的位置。访问某个位置之前必须先用 {@link #has(int)} 确认它存在，
+ * 流式读取的时候 has 会按需往后读。
+ */
+abstract class ScanText {
+
+    /**
+     * @return 第 index 个字符是否存在
+     */
+    abstract boolean has(int index);
+
+    abstract char at(int index);
+
+    /**
+     * 文本的总长度，只有在 {@link #has(int)} 返回过 false 之后才确定
+     */
+    abstract int length();
+
+    /**
+     * 告诉文本之后不会再访问、也不会再换算 index 之前的位置，流式读取的时候这部分缓冲可以丢掉
+     */
+    void release(int index) {
+    }
+
+    static ScanText of(CharSequence sentence) {
+        return new SequenceText(sentence);
+    }
+
+    /**
+     * @param buffer_size 每次从 reader 读多少个字符。缓冲区只保留还可能被访问的字符，
+     *                    只有遇到比它还长的关键字或者标点串时才会变大
+     */
+    static ScanText of(Reader reader, int buffer_size) {
+        return of(reader, buffer_size, KeywordMatcher.MAX_STREAM_LENGTH);
+    }
+
+    /**
+     * @param max_length 最多读多少个字符，读到这里流还没结束就抛出 IOException，位置不会溢出
+     */
+    static ScanText of(Reader reader, int buffer_size, int max_length) {
+        return new ReaderText(reader, buffer_size, max_length);
+    }
+
+    /**
+     * 可以用 {@link #reset(CharSequence)} 换一段文本重复使用
+     */
+    static final class SequenceText extends ScanText {
+        private CharSequence sentence;
+        private int length;
+
+        SequenceText(CharSequence sentence) {
+            reset(sentence);
+        }
+
+        void reset(CharSequence sentence) {
+            this.sentence = sentence;
+            this.length = sentence.length();
+        }
+
+        @Override
+        boolean has(int index) {
+            return index < this.length;
+        }
+
+        @Override
+        char at(int index) {
+            return this.sentence.charAt(index);
+        }
+
+        @Override
+        int length() {
+            return this.length;
+        }
+    }
+
+    /**
+     * 读的时候抛出的 IOException 包成 {@link UncheckedIOException}，由调用方解开
+     */
+    private static final class ReaderText extends ScanText {
+        private final Reader reader;
+        private final int max_length;
+        private char[] buffer;
+        /**
+         * buffer[0] 在整段文本里的位置
+         */
+        private int base;
+        /**
+         * 已经读进来的字符的结束位置
+         */
+        private int end;
+        private int released;
+        private boolean eof;
+
+        ReaderText(Reader reader, int buffer_size, int max_length) {
+            if (buffer_size <= 0)
+                throw new IllegalArgumentException("buffer_size must be positive: " + buffer_size);
+            this.reader = reader;
+            this.max_length = max_length;
+            this.buffer = new char[buffer_size];
+        }
+
+        @Override
+        boolean has(int index) {
+            while (index >= this.end && !this.eof)
+                fill();
+            return index < this.end;
+        }
+
+        @Override
+        char at(int index) {
+            return this.buffer[index - this.base];
+        }
+
+        @Override
+        int length() {
+            return this.end;
+        }
+
+        @Override
+        void release(int index) {
+            if (index > this.released)
+                this.released = index;
+        }
+
+        private void fill() {
+            if (this.end - this.base == this.buffer.length) {
+                int discard = this.released - this.base;
+                if (discard > 0) {
+                    System.arraycopy(this.buffer, discard, this.buffer, 0, this.end - this.released);
+                    this.base = this.released;
+                } else {
+                    this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+                }
+            }
+
+            int offset = this.end - this.base;
+            int read;
+            try {
+                if (this.end == this.max_length) {
+                    // 多读一个字符，看流是不是正好在这里结束
+                    if (this.reader.read() < 0) {
+                        this.eof = true;
+                        return;
+                    }
+                    throw new IOException("stream is longer than " + this.max_length + " chars");
+                }
+                read = this.reader.read(this.buffer, offset, Math.min(this.buffer.length - offset, this.max_length - this.end));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (read < 0)
+                this.eof = true;
+            else
+                this.end += read;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package flashtext;
+
+/**
+ * 多字典匹配的回调，见 {@link MultiKeywordMatcher}
+ */
+@FunctionalInterface
+public interface TaggedMatchConsumer {
+
+    /**
+     * 同一段文字在多个选中的字典里都有的时候，每个字典回调一次
+     *
+     * @param dictionary 关键字所在的字典
+     * @param clean_name 关键字在这个字典里的 clean name
+     * @param start      匹配在原文里的起始位置
+     * @param end        匹配在原文里的结束位置，不包含
+     */
+    void accept(String dictionary, String clean_name, int start, int end);
+}
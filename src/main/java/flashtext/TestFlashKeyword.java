@@ -0,0 +1,835 @@
+package flashtext;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * @author liuhaibo on 2021/09/01
+ */
+public class TestFlashKeyword {
+
+    public static void main(String... args) {
+        test1();
+        test2();
+        test3();
+        test4();
+        test5();
+        test6();
+        test7();
+        test8();
+        test9();
+        test10();
+        test11();
+        test12();
+        test13();
+        test14();
+        test15();
+        test16();
+        test17();
+        test18();
+        test19();
+        test20();
+        test21();
+        test22();
+        test23();
+        test24();
+        test25();
+        test26();
+        test27();
+        test28();
+        test29();
+        test30();
+        test31();
+        test32();
+        test33();
+        test34();
+        test35();
+        test36();
+    }
+
+    private static void test1() {
+        System.out.println("===============1");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("java", "com.java");
+        keywordProcessor.add_keyword("python", "com.python");
+        keywordProcessor.add_keyword("hello world", "com.helloworld");
+        keywordProcessor.add_keyword("hello world life", "com.helloworldlife");
+
+        List<KeywordProcessor.MatchResult> result = keywordProcessor.extract_keywords("ja hello java, this is java he$$llo world life");
+        System.out.println(result);
+    }
+
+    private static void test2() {
+        System.out.println("===============2");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("Counter Strike Global Offensive", "com.csgolong");
+        keywordProcessor.add_keyword("csgo", "com.csgo");
+//        keywordProcessor.add_keyword("hello world", "com.helloworld");
+//        keywordProcessor.add_keyword("hello world life", "com.helloworldlife");
+
+        List<KeywordProcessor.MatchResult> result = keywordProcessor.extract_keywords("Counter Strike: Global Offensive, aka csgo, aka cs:go, aka Counter Strike Global Offensive");
+        System.out.println(result);
+    }
+
+    private static void test3() {
+        System.out.println("===============3");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("反恐精英", "com.csgolong");
+        keywordProcessor.add_keyword("csgo", "com.csgo");
+//        keywordProcessor.add_keyword("hello world", "com.helloworld");
+//        keywordProcessor.add_keyword("hello world life", "com.helloworldlife");
+
+        List<KeywordProcessor.MatchResult> result = keywordProcessor.extract_keywords("你说这个反恐精英它是个好游戏吗 反恐精英，反恐:精英，反恐：精英");
+        System.out.println(result);
+    }
+
+    private static void test4() {
+        System.out.println("===============4");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("有道", "com.csgolong");
+        keywordProcessor.add_keyword("csgo", "com.csgo");
+//        keywordProcessor.add_keyword("hello world", "com.helloworld");
+//        keywordProcessor.add_keyword("hello world life", "com.helloworldlife");
+
+        List<KeywordProcessor.MatchResult> result = keywordProcessor.extract_keywords("有道有道有道道dao");
+        System.out.println(result);
+    }
+
+    private static void test5() {
+        System.out.println("===============5");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        Random random = new Random(5);
+        for (int i = 0; i < 100000; i++) {
+            StringBuilder keyword = new StringBuilder();
+            int len = 4 + random.nextInt(12);
+            for (int j = 0; j < len; j++)
+                keyword.append((char) ('a' + random.nextInt(26)));
+            keywordProcessor.add_keyword(keyword.toString(), "com.keyword" + i);
+        }
+        keywordProcessor.add_keyword("java", "com.java");
+        keywordProcessor.remove_keyword("java");
+
+        CharTrie trie = keywordProcessor.keyword_trie_dict;
+        System.out.println("keywords: " + keywordProcessor.__len__() + ", nodes: " + trie.node_count()
+                + ", java: " + keywordProcessor.get_keyword("java"));
+        System.out.printf("bytes per keyword: compact %.1f, map of maps %.1f%n",
+                keywordProcessor.bytes_per_keyword(),
+                (double) trie.estimated_map_of_maps_bytes() / keywordProcessor.__len__());
+        CompiledTrie compiled = (CompiledTrie) keywordProcessor.compile().trie();
+        System.out.printf("bytes per keyword: compiled %.1f%n", (double) compiled.estimated_bytes() / compiled.size());
+    }
+
+    private static void test6() {
+        System.out.println("===============6");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("java", "com.java.v0");
+        KeywordMatcher compiled = keywordProcessor.compile();
+        System.out.println("compiled nodes: " + ((CompiledTrie) compiled.trie()).node_count());
+
+        AtomicInteger extracted = new AtomicInteger();
+        AtomicInteger broken = new AtomicInteger();
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(() -> {
+                for (int j = 0; j < 20000; j++) {
+                    List<KeywordProcessor.MatchResult> result = keywordProcessor.extract_keywords("i like java and python");
+                    // 要么是旧字典的结果，要么是新字典的结果，不会是一半
+                    if (result.size() != 1 && result.size() != 2)
+                        broken.incrementAndGet();
+                    extracted.incrementAndGet();
+                }
+            });
+            readers[i].start();
+        }
+        for (int version = 1; version <= 50; version++) {
+            KeywordProcessor built = new KeywordProcessor();
+            built.add_keyword("java", "com.java.v" + version);
+            if (version % 2 == 0)
+                built.add_keyword("python", "com.python.v" + version);
+            keywordProcessor.swap(built);
+        }
+        for (Thread reader : readers) {
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        System.out.println("extracted: " + extracted.get() + ", broken: " + broken.get()
+                + ", latest: " + keywordProcessor.extract_keywords("i like java and python"));
+    }
+
+    private static void test7() {
+        System.out.println("===============7");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("反恐精英", "com.csgolong");
+        keywordProcessor.add_keyword("有道", "com.youdao");
+        keywordProcessor.add_keyword("有道词典", "com.youdaodict");
+        System.out.println(keywordProcessor.aho_corasick().extract_keywords("你说这个反恐精英它是个好游戏吗 反恐精英，反恐:精英，反恐：精英"));
+        System.out.println(keywordProcessor.aho_corasick().extract_keywords("有道有道词典有道道dao"));
+
+        // 长中文文档：大部分是关键字去掉最后一个字，每个位置都能走好几步但是匹配不上
+        Random random = new Random(7);
+        KeywordProcessor large = new KeywordProcessor();
+        List<String> keywords = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder keyword = new StringBuilder();
+            int len = 4 + random.nextInt(6);
+            for (int j = 0; j < len; j++)
+                keyword.append((char) (0x4e00 + random.nextInt(300)));
+            keywords.add(keyword.toString());
+            large.add_keyword(keyword.toString(), "com.keyword" + i);
+        }
+        StringBuilder document = new StringBuilder();
+        while (document.length() < 1000000) {
+            String keyword = keywords.get(random.nextInt(keywords.size()));
+            document.append(keyword, 0, random.nextInt(20) == 0 ? keyword.length() : keyword.length() - 1);
+        }
+        String text = document.toString();
+        large.compile();
+
+        for (int round = 0; round < 3; round++) {
+            long begin = System.nanoTime();
+            int loop = large.extract_keywords(text).size();
+            long middle = System.nanoTime();
+            int aho_corasick = large.aho_corasick().extract_keywords(text).size();
+            long end = System.nanoTime();
+            System.out.printf("1M chinese chars: loop %d matches in %d ms, aho-corasick %d matches in %d ms%n",
+                    loop, (middle - begin) / 1000000, aho_corasick, (end - middle) / 1000000);
+        }
+    }
+
+    private static void test8() {
+        System.out.println("===============8");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("java", "com.java");
+        keywordProcessor.add_keyword("hello world", "com.helloworld");
+        keywordProcessor.add_keyword("hello world life", "com.helloworldlife");
+
+        // 一边生成一边读的大文本，不会整个放进内存
+        String line = "ja hello java, this is java he$$llo world life\n";
+        int repeat = 200000;
+        Reader reader = new Reader() {
+            private long position;
+
+            @Override
+            public int read(char[] cbuf, int off, int len) {
+                if (position >= (long) line.length() * repeat)
+                    return -1;
+                int read = 0;
+                while (read < len && position < (long) line.length() * repeat)
+                    cbuf[off + read++] = line.charAt((int) (position++ % line.length()));
+                return read;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        int[] matches = new int[1];
+        int[] last_end = new int[1];
+        try {
+            keywordProcessor.extract_keywords(reader, (clean_name, start, end) -> {
+                matches[0]++;
+                last_end[0] = end;
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        System.out.println("streamed " + (long) line.length() * repeat + " chars, matches: " + matches[0]
+                + ", expected: " + keywordProcessor.extract_keywords(line).size() * repeat + ", last end: " + last_end[0]);
+    }
+
+    private static void test9() {
+        System.out.println("===============9");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("java", "com.java");
+        keywordProcessor.add_keyword("hello world life", "com.helloworldlife");
+        keywordProcessor.add_keyword("反恐精英", "com.csgolong");
+
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100000; i++)
+            content.append(i % 2 == 0 ? "ja hello java, this is java he$$llo world life\n" : "你说这个反恐精英它是个好游戏吗 反恐:精英\n");
+        String text = content.toString();
+
+        try {
+            Path file = Files.createTempFile("flashtext", ".txt");
+            try {
+                Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+                CorpusScanner scanner = new CorpusScanner(keywordProcessor.matcher(), ForkJoinPool.commonPool(), 64 << 10);
+                List<CorpusScanner.FileMatch> matches = scanner.scan(file);
+
+                // 整段文本一起匹配，再把字符位置换算成字节位置
+                List<KeywordProcessor.MatchResult> expected = keywordProcessor.extract_keywords(text);
+                boolean same = expected.size() == matches.size();
+                int chars = 0;
+                long bytes = 0;
+                for (int i = 0; same && i < expected.size(); i++) {
+                    KeywordProcessor.MatchResult match = expected.get(i);
+                    bytes += text.substring(chars, match.getStart()).getBytes(StandardCharsets.UTF_8).length;
+                    chars = match.getStart();
+                    same = matches.get(i).getFound().equals(match.getFound()) && matches.get(i).getStart() == bytes;
+                }
+                System.out.println("scanned " + Files.size(file) + " bytes, matches: " + matches.size()
+                        + ", same as extract_keywords: " + same + ", last: " + matches.get(matches.size() - 1));
+            } finally {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void test10() {
+        System.out.println("===============10");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("java", "com.java");
+        keywordProcessor.add_keyword("反恐精英", "com.csgolong");
+
+        List<String> sentences = new ArrayList<>();
+        for (int i = 0; i < 10000; i++)
+            sentences.add(i % 3 == 0 ? "java " + i : i % 3 == 1 ? "反恐精英" + i + " java" : "nothing " + i);
+        List<List<KeywordProcessor.MatchResult>> results = keywordProcessor.extract_all(sentences);
+
+        boolean same = results.size() == sentences.size();
+        for (int i = 0; same && i < sentences.size(); i++)
+            same = results.get(i).equals(keywordProcessor.extract_keywords(sentences.get(i)));
+        System.out.println("batch of " + results.size() + ", same as extract_keywords: " + same + ", last: " + results.get(results.size() - 1));
+    }
+
+    private static void test11() {
+        System.out.println("===============11");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("Big Apple", "New York");
+        keywordProcessor.add_keyword("Bay Area", "Bay Area");
+        keywordProcessor.add_keyword("反恐精英", "CS");
+        String text = "I love big apple and Bay Area. 你说这个反恐精英它是个好游戏吗";
+        System.out.println(keywordProcessor.replace_keywords(text));
+
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100000; i++)
+            content.append(text).append('\n');
+        java.io.StringWriter redacted = new java.io.StringWriter();
+        try {
+            keywordProcessor.replace_keywords(new java.io.StringReader(content.toString()), redacted);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        System.out.println("streamed " + content.length() + " chars, same as replace_keywords: "
+                + redacted.toString().equals(keywordProcessor.replace_keywords(content.toString())));
+    }
+
+    private static void test12() {
+        System.out.println("===============12");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        Random random = new Random(12);
+        for (int i = 0; i < 200000; i++)
+            keywordProcessor.add_keyword("kw" + Integer.toString(random.nextInt(Integer.MAX_VALUE), 36), "com.kw" + (i % 1000));
+        keywordProcessor.add_keyword("java", "com.java");
+        keywordProcessor.add_keyword("反恐精英", "com.csgolong");
+
+        try {
+            Path file = Files.createTempFile("flashtext", ".trie");
+            try {
+                keywordProcessor.save(file);
+                long start = System.nanoTime();
+                KeywordMatcher loaded = KeywordMatcher.load(file);
+                long elapsed = (System.nanoTime() - start) / 1000000;
+
+                String text = "ja hello java, this is JAVA 反恐精英 kw" + Integer.toString(new Random(12).nextInt(Integer.MAX_VALUE), 36);
+                System.out.println("saved " + Files.size(file) + " bytes, loaded " + loaded.size() + " keywords in " + elapsed
+                        + " ms, same as extract_keywords: " + loaded.extract_keywords(text).equals(keywordProcessor.extract_keywords(text))
+                        + ", " + loaded.extract_keywords(text));
+
+                // 改掉一个字节，校验应该失败
+                byte[] bytes = Files.readAllBytes(file);
+                bytes[bytes.length / 2] ^= 1;
+                Files.write(file, bytes);
+                try {
+                    KeywordMatcher.load(file);
+                    System.out.println("corrupt file loaded");
+                } catch (IOException e) {
+                    System.out.println(e.getMessage().substring(e.getMessage().indexOf(" is ") + 1));
+                }
+            } finally {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void test13() {
+        System.out.println("===============13");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        Random random = new Random(13);
+        for (int i = 0; i < 200000; i++)
+            keywordProcessor.add_keyword("kw" + Integer.toString(random.nextInt(Integer.MAX_VALUE), 36), "com.kw" + i);
+        KeywordMatcher first = keywordProcessor.matcher();
+        int first_size = first.size();
+
+        // 边改边查，每次查询都会发布一份新的快照
+        long start = System.nanoTime();
+        boolean monotonic = true;
+        long version = first.version();
+        for (int i = 0; i < 10000; i++) {
+            keywordProcessor.add_keyword("update" + i, "com.update" + i);
+            if (i % 2 == 1)
+                keywordProcessor.remove_keyword("update" + (i - 1));
+            KeywordMatcher current = keywordProcessor.matcher();
+            monotonic &= current.version() > version && current.contains("update" + i);
+            version = current.version();
+        }
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        System.out.println("10000 updates in " + elapsed + " ms, versions increasing: " + monotonic
+                + ", first snapshot unchanged: " + (first.size() == first_size && !first.contains("update9999"))
+                + ", keywords: " + keywordProcessor.__len__());
+    }
+
+    private static void test14() {
+        System.out.println("===============14");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("java", "com.java");
+        keywordProcessor.add_keyword("hello world life", "com.helloworldlife");
+        keywordProcessor.add_keyword("反恐精英", "com.csgolong");
+        ScanMetrics metrics = new ScanMetrics();
+        keywordProcessor.scan_listener = metrics;
+
+        for (int i = 0; i < 1000; i++)
+            keywordProcessor.extract_keywords("ja hello java, this is java he$$llo world life 你说这个反恐精英它是个好游戏吗");
+        System.out.println("extractions: " + metrics.extractions() + ", chars: " + metrics.chars_scanned()
+                + ", nodes: " + metrics.nodes_visited() + ", restarts: " + metrics.restarts()
+                + ", backtracks: " + metrics.backtracks() + ", hits: " + new java.util.TreeMap<>(metrics.hits())
+                + ", p99 < " + metrics.latency_quantile(0.99) + " ns");
+    }
+
+    private static void test15() {
+        System.out.println("===============15");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("counter strike", "CS");
+        keywordProcessor.add_keyword("csgo", "CS");
+        keywordProcessor.add_keyword("java", "com.java");
+
+        System.out.println(keywordProcessor.extract_keywords("I love Counter Strke and csgoo, not jaav.", 1));
+        System.out.println(keywordProcessor.extract_keywords("I love Counter Strke and csgoo, not jaav.", 2));
+        System.out.println(keywordProcessor.get_fuzzy_keywords("jvaa", 2));
+    }
+
+    private static void test16() {
+        System.out.println("===============16");
+        MultiKeywordProcessor multiProcessor = new MultiKeywordProcessor();
+        multiProcessor.add_keyword("brands", "java", "com.java");
+        multiProcessor.add_keyword("brands", "反恐精英", "com.csgolong");
+        multiProcessor.add_keyword("products", "java", "jdk");
+        multiProcessor.add_keyword("products", "hello world life", "com.helloworldlife");
+        multiProcessor.add_keyword("profanity", "hello world", "***");
+
+        String text = "ja hello java, this is java hello world life 你说这个反恐精英它是个好游戏吗";
+        System.out.println(multiProcessor.extract_keywords(text));
+        System.out.println(multiProcessor.extract_keywords(text, java.util.Arrays.asList("profanity", "brands")));
+        System.out.println(multiProcessor.get_keyword("JAVA"));
+    }
+
+    private static void test17() {
+        System.out.println("===============17");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        Random random = new Random(17);
+        for (int i = 0; i < 200000; i++)
+            keywordProcessor.add_keyword("kw" + Integer.toString(random.nextInt(Integer.MAX_VALUE), 36), "com.kw" + (i % 1000));
+        keywordProcessor.add_keyword("java", "com.java");
+        keywordProcessor.add_keyword("反恐精英", "com.csgolong");
+
+        String text = "ja hello java, this is JAVA 反恐精英 kw" + Integer.toString(new Random(17).nextInt(Integer.MAX_VALUE), 36);
+        List<KeywordProcessor.MatchResult> on_heap = keywordProcessor.extract_keywords(text);
+        KeywordMatcher off_heap = keywordProcessor.compile_off_heap();
+        MappedTrie trie = (MappedTrie) off_heap.trie();
+        System.out.println("off heap: " + trie.is_direct() + ", " + trie.buffer_bytes() / off_heap.size() + " bytes per keyword"
+                + ", same as on heap: " + on_heap.equals(keywordProcessor.extract_keywords(text)) + ", " + on_heap);
+        // 改了字典之后重新发布的快照还在堆外
+        keywordProcessor.add_keyword("hello", "com.hello");
+        System.out.println("still off heap: " + (keywordProcessor.matcher().trie() instanceof MappedTrie) + ", "
+                + keywordProcessor.extract_keywords(text).size());
+    }
+
+    private static void test18() {
+        System.out.println("===============18");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("java", "com.java");
+        keywordProcessor.add_keyword("javascript", "com.javascript");
+        keywordProcessor.add_keyword("java ee", "com.javaee");
+        keywordProcessor.add_keyword("jar", "jar");
+        keywordProcessor.add_keyword("python", "com.python");
+        System.out.println(keywordProcessor.get_keywords_with_prefix("JA", 3));
+        System.out.println(keywordProcessor.get_keywords_with_prefix("javas", 10) + " " + keywordProcessor.get_keywords_with_prefix("c", 10));
+
+        Random random = new Random(18);
+        for (int i = 0; i < 200000; i++)
+            keywordProcessor.add_keyword("kw" + Integer.toString(random.nextInt(Integer.MAX_VALUE), 36), "com.kw");
+        int count = 0;
+        String last = "";
+        boolean sorted = true;
+        for (KeywordCursor cursor = keywordProcessor.keywords(""); cursor.hasNext(); count++) {
+            String keyword = cursor.next().getKey();
+            sorted &= last.compareTo(keyword) < 0 || count == 0;
+            last = keyword;
+        }
+        System.out.println("exported " + count + " of " + keywordProcessor.__len__() + ", sorted: " + sorted);
+    }
+
+    private static void test19() {
+        System.out.println("===============19");
+        // 20 万个关键字，clean name 只有 100 种，后缀相同的子树可以共享
+        List<Map.Entry<String, String>> pairs = new ArrayList<>();
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        Random random = new Random(19);
+        for (int i = 0; i < 200000; i++) {
+            StringBuilder keyword = new StringBuilder();
+            int len = 4 + random.nextInt(8);
+            for (int j = 0; j < len; j++)
+                keyword.append((char) ('a' + random.nextInt(6)));
+            pairs.add(new AbstractMap.SimpleImmutableEntry<>(keyword.toString(), "com.kw" + (i % 100)));
+        }
+        pairs.add(new AbstractMap.SimpleImmutableEntry<>("Java", "com.java"));
+
+        long start = System.nanoTime();
+        for (Map.Entry<String, String> pair : pairs)
+            keywordProcessor.add_keyword(pair.getKey(), pair.getValue());
+        KeywordMatcher compiled = keywordProcessor.compile();
+        long add_keyword = (System.nanoTime() - start) / 1000000;
+        start = System.nanoTime();
+        KeywordMatcher built = KeywordMatcher.build(pairs, false, keywordProcessor.word_boundaries);
+        long bulk_build = (System.nanoTime() - start) / 1000000;
+
+        PackedTrie packed = (PackedTrie) built.trie();
+        CompiledTrie compiled_trie = (CompiledTrie) compiled.trie();
+        String text = "ja hello java, this is JAVA " + pairs.get(0).getKey() + " " + pairs.get(1).getKey();
+        System.out.println("add_keyword + compile " + add_keyword + " ms, build " + bulk_build + " ms, nodes "
+                + compiled_trie.node_count() + " -> " + packed.node_count() + ", bytes per keyword "
+                + String.format("%.1f -> %.1f", (double) compiled_trie.estimated_bytes() / compiled.size(),
+                (double) packed.estimated_bytes() / built.size())
+                + ", same: " + built.get_all_keywords().equals(compiled.get_all_keywords())
+                + " " + built.extract_keywords(text).equals(compiled.extract_keywords(text)));
+    }
+
+    private static void test20() {
+        System.out.println("===============20");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("Big Apple", "New York");
+        keywordProcessor.add_keyword("Bay Area", "Bay Area");
+        String text = "I love Big Apple and Bay Area.";
+        System.out.println(keywordProcessor.contains_any(text) + " " + keywordProcessor.first_match(text) + " "
+                + keywordProcessor.count_matches(text) + " " + keywordProcessor.contains_any("I love New York"));
+
+        // 关键字在开头，后面还有 1 亿个空格，contains_any 读到第一个关键字就停了
+        Reader reader = new Reader() {
+            private long read;
+
+            @Override
+            public int read(char[] cbuf, int off, int len) {
+                if (this.read >= 100000000)
+                    return -1;
+                java.util.Arrays.fill(cbuf, off, off + len, ' ');
+                if (this.read == 0)
+                    "big apple".getChars(0, 9, cbuf, off);
+                this.read += len;
+                return len;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        try {
+            long start = System.nanoTime();
+            boolean found = keywordProcessor.contains_any(reader);
+            System.out.println("long stream: " + found + " in " + (System.nanoTime() - start) / 1000000 + " ms");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void test21() {
+        System.out.println("===============21");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("hello world", "com.helloworld");
+        keywordProcessor.add_keyword("hello world life", "com.helloworldlife");
+        keywordProcessor.add_keyword("world life", "com.worldlife");
+        keywordProcessor.add_keyword("反恐精英", "com.csgolong");
+        keywordProcessor.add_keyword("精英", "com.elite");
+        String text = "ja hello world life, 反恐精英";
+        System.out.println(keywordProcessor.extract_keywords(text));
+        System.out.println(keywordProcessor.extract_all_matches(text));
+    }
+
+    private static void test22() {
+        System.out.println("===============22");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("java", "com.java");
+        keywordProcessor.add_keyword("python", "com.python");
+        ExtractionCache cache = new ExtractionCache(64 * 1024);
+        keywordProcessor.extraction_cache = cache;
+
+        // 三成是重复的模板消息
+        Random random = new Random(22);
+        for (int i = 0; i < 10000; i++) {
+            String text = random.nextInt(10) < 3 ? "template " + random.nextInt(20) + " java"
+                    : "message " + random.nextInt(Integer.MAX_VALUE) + " python";
+            keywordProcessor.extract_keywords(text);
+        }
+        System.out.println(String.format("hit rate %.2f, entries %d, bytes %d <= %d, evictions > 0: %b", cache.hit_rate(),
+                cache.size(), cache.bytes(), cache.max_bytes(), cache.evictions() > 0));
+
+        String text = "template 1 java";
+        System.out.println(keywordProcessor.extract_keywords(text));
+        keywordProcessor.remove_keyword("java");
+        System.out.println(keywordProcessor.extract_keywords(text) + ", invalidations > 0: " + (cache.invalidations() > 0));
+    }
+
+    private static void test23() {
+        System.out.println("===============23");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("java", "com.java");
+        keywordProcessor.add_keyword("python", "com.python");
+
+        // 默认只有空格之类的是分界，全角标点前后的关键字匹配不到
+        String text = "语言：java，python。";
+        System.out.println(keywordProcessor.extract_keywords(text));
+        keywordProcessor.char_classifier = CharClassifier.CJK;
+        System.out.println(keywordProcessor.extract_keywords(text));
+
+        // 跳过所有的连接符，比如 "py_thon"、"ja‿va"
+        keywordProcessor.char_classifier = CharClassifier.CJK.to_builder()
+                .ignore_category(Character.CONNECTOR_PUNCTUATION)
+                .build();
+        System.out.println(keywordProcessor.extract_keywords("py_thon，ja\u203fva"));
+    }
+
+    private static void test24() {
+        System.out.println("===============24");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("北京", "com.beijing");
+        keywordProcessor.add_keyword("上海", "com.shanghai");
+        keywordProcessor.add_keyword("hello world", "com.helloworld");
+
+        // 大部分字符都不可能是关键字的开头，过不过滤结果都一样
+        String text = "今天从北京出发，明天到上海。say hello world, hi world";
+        List<KeywordProcessor.MatchResult> filtered = keywordProcessor.extract_keywords(text);
+        keywordProcessor.prefilter = false;
+        List<KeywordProcessor.MatchResult> plain = keywordProcessor.extract_keywords(text);
+        System.out.println(filtered + ", same: " + filtered.equals(plain));
+    }
+
+    private static void test25() {
+        System.out.println("===============25");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("Big Apple", "New York");
+        keywordProcessor.add_keyword("Bay Area", "Bay Area");
+        ScanMetrics metrics = new ScanMetrics();
+        keywordProcessor.scan_listener = metrics;
+        keywordProcessor.quick_reject = true;
+
+        // 前两段不含任何关键字的前缀，不用扫描就排除了
+        System.out.println(keywordProcessor.extract_keywords("nothing to see here"));
+        System.out.println(keywordProcessor.extract_keywords("just another message"));
+        System.out.println(keywordProcessor.extract_keywords("I love big apple and Bay Area."));
+        System.out.println(String.format("checks %d, rejects %d, reject rate %.2f, chars rejected %d, extractions %d",
+                metrics.quick_checks(), metrics.quick_rejects(), metrics.reject_rate(), metrics.chars_rejected(),
+                metrics.extractions()));
+    }
+
+    private static void test26() {
+        System.out.println("===============26");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("Counter Strike", "CS");
+        keywordProcessor.add_keyword("Counter Strike Global Offensive", "CSGO");
+        keywordProcessor.add_keyword("Counter Strike Source", "CSS");
+        keywordProcessor.add_keyword("Global Offensive", "GO");
+
+        // 按词建树，每个关键字有几个词就只有几层
+        TokenTrieMatcher tokenTrie = keywordProcessor.token_trie();
+        String text = "I play counter strike global offensive, not Counter Strike Source or counter strike";
+        System.out.println(tokenTrie.extract_keywords(text));
+        System.out.println(keywordProcessor.extract_keywords(text));
+        System.out.println("nodes: " + keywordProcessor.keyword_trie_dict.node_count() + " -> " + tokenTrie.node_count()
+                + ", words: " + tokenTrie.word_count());
+    }
+
+    private static void test27() {
+        System.out.println("===============27");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        // 空的关键字不加，也不会让每个分界都匹配上
+        System.out.println(keywordProcessor.add_keyword("", "empty") + " " + keywordProcessor.add_keyword("java", null)
+                + " " + keywordProcessor.add_keyword("java", null) + " " + keywordProcessor.__len__());
+        System.out.println(keywordProcessor.extract_keywords("I like java"));
+    }
+
+    private static void test28() {
+        System.out.println("===============28");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("axb", "com.axb");
+        // 只忽略大写的 X，转成小写之后就不是忽略的字符了，两个引擎要一致
+        keywordProcessor.char_classifier = CharClassifier.DEFAULT.to_builder().ignore("X").build();
+        String text = "aXb";
+        System.out.println(keywordProcessor.extract_keywords(text) + " " + keywordProcessor.aho_corasick().extract_keywords(text));
+    }
+
+    private static void test29() {
+        System.out.println("===============29");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("java", "com.java");
+        // 无穷的输入也可以，只会一批一批地取
+        AtomicInteger pulled = new AtomicInteger();
+        List<List<KeywordProcessor.MatchResult>> results = keywordProcessor
+                .extract_all(Stream.generate(() -> "I like java " + pulled.incrementAndGet()))
+                .limit(3)
+                .collect(Collectors.toList());
+        System.out.println(results + ", pulled " + pulled.get());
+    }
+
+    private static void test30() {
+        System.out.println("===============30");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("java", "com.java");
+        keywordProcessor.compile();
+        List<Map.Entry<String, String>> pairs = new ArrayList<>();
+        pairs.add(new AbstractMap.SimpleImmutableEntry<>("Python", "com.python"));
+        pairs.add(new AbstractMap.SimpleImmutableEntry<>("Go", "com.go"));
+        // 批量建好的字典直接热加载，查询用的就是它的 PackedTrie
+        KeywordMatcher previous = keywordProcessor.swap(KeywordMatcher.build(pairs, false, keywordProcessor.word_boundaries));
+        System.out.println(previous.extract_keywords("I like java") + " -> "
+                + keywordProcessor.extract_keywords("I like java, python and go"));
+        System.out.println(keywordProcessor.matcher().trie() instanceof PackedTrie);
+        // 之后还能接着改
+        keywordProcessor.add_keyword("rust", "com.rust");
+        System.out.println(keywordProcessor.extract_keywords("python or rust") + " " + keywordProcessor.__len__());
+    }
+
+    private static void test31() {
+        System.out.println("===============31");
+        ExtractionCache cache = new ExtractionCache(64 * 1024);
+        KeywordProcessor java = new KeywordProcessor();
+        java.add_keyword("java", "com.java");
+        java.extraction_cache = cache;
+        KeywordProcessor python = new KeywordProcessor();
+        python.add_keyword("java", "org.python.java");
+        python.extraction_cache = cache;
+        // 两个 processor 的快照版本号一样，共用一个缓存也不能拿到对方的结果
+        System.out.println(java.matcher().version() == python.matcher().version());
+        String text = "I like java";
+        System.out.println(java.extract_keywords(text) + " " + python.extract_keywords(text) + " "
+                + java.extract_keywords(text) + " hits " + cache.hits());
+    }
+
+    private static void test32() {
+        System.out.println("===============32");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("java", "com.java");
+        KeywordMatcher matcher = keywordProcessor.compile();
+        // 用很小的上限代替 MAX_STREAM_LENGTH：正好这么长的流能读完，再长就报错，不会算出错的位置
+        for (String text : new String[]{"java java", "java java java"}) {
+            List<KeywordProcessor.MatchResult> results = new ArrayList<>();
+            try {
+                matcher.extract_keywords(ScanText.of(new StringReader(text), 4, 9),
+                        (clean_name, start, end) -> results.add(new KeywordProcessor.MatchResult(clean_name, start, end)));
+                System.out.println(results);
+            } catch (UncheckedIOException e) {
+                System.out.println(results + " " + e.getCause().getMessage());
+            }
+        }
+    }
+
+    private static void test33() {
+        System.out.println("===============33");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("java", "com.java");
+        keywordProcessor.compile_off_heap();
+        // 堆外的快照直接拒绝，不会悄悄把字典拷回堆上
+        try {
+            keywordProcessor.extract_all_matches("I like java");
+        } catch (UnsupportedOperationException e) {
+            System.out.println(e.getMessage());
+        }
+        try {
+            keywordProcessor.token_trie();
+        } catch (UnsupportedOperationException e) {
+            System.out.println(e.getMessage());
+        }
+        System.out.println(keywordProcessor.extract_keywords("I like java"));
+    }
+
+    private static void test34() {
+        System.out.println("===============34");
+        // 很长的流一次报告的计数会超过 int，累加起来也不能溢出
+        ScanMetrics metrics = new ScanMetrics();
+        metrics.on_extract(3000000000L, 2500000000L, 1L << 31, 5, 1000);
+        metrics.on_extract(3000000000L, 2500000000L, 1L << 31, 5, 1000);
+        System.out.println(metrics.chars_scanned() + " " + metrics.nodes_visited() + " " + metrics.restarts() + " "
+                + metrics.backtracks());
+    }
+
+    private static void test35() {
+        System.out.println("===============35");
+        // 同一个区里的字母和数字不是分界，标点和符号是
+        StringBuilder boundaries = new StringBuilder();
+        for (char ch : "々〆〇〡〱。「」〒＋￥　".toCharArray())
+            boundaries.append(ch).append(CharClassifier.CJK.is_boundary(ch) ? 'Y' : 'N');
+        System.out.println(boundaries);
+    }
+
+    private static void test36() {
+        System.out.println("===============36");
+        KeywordProcessor keywordProcessor = new KeywordProcessor();
+        keywordProcessor.add_keyword("java", "com.java");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100000; i++)
+            text.append("line ").append(i).append(" java\n");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Path file = Files.createTempFile("flashtext", ".txt");
+            try {
+                Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+                // 每扫完一段加一
+                AtomicInteger scanned = new AtomicInteger();
+                KeywordMatcher matcher = keywordProcessor.matcher().with_listener(new ScanListener() {
+                    @Override
+                    public void on_extract(long chars_scanned, long nodes_visited, long restarts, long backtracks, long nanos) {
+                        scanned.incrementAndGet();
+                    }
+                });
+                CorpusScanner scanner = new CorpusScanner(matcher, pool, 4 << 10);
+                // consumer 出错的时候，还在扫描的段都已经停下来了，文件才被关掉，之后不会再有段扫完
+                try {
+                    scanner.scan(file, match -> {
+                        throw new IllegalStateException("stop at " + match.getStart());
+                    });
+                } catch (IllegalStateException e) {
+                    int returned = scanned.get();
+                    pool.awaitQuiescence(1, TimeUnit.SECONDS);
+                    System.out.println(e.getMessage() + ", still scanning after return: " + (scanned.get() - returned));
+                }
+            } finally {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package flashtext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按词匹配的字典树，用于英文这种多个单词组成一个关键字的字典，比如 "counter strike global offensive"。
+ * <p>
+ * 关键字和文本都按分界（word_boundaries 里的单个字符和 char_classifier 里的分界）切成词，
+ * 每个不同的词分配一个 int 编号，字典树的边是 (节点, 词的编号)，存在以 long 为 key 的开放寻址表里，不装箱。
+ * 一个关键字有几个词就只有几层，比按字符的字典树节点少得多，匹配的时候每个词也只走一步。
+ * <p>
+ * 和 {@link KeywordMatcher#extract_keywords(String)} 一样从左往右取最长的关键字、匹配之间不重叠，
+ * 忽略 char_classifier 里的特殊字符，返回的位置也按同样的规则算。区别是：
+ * - 只在完整的词上匹配，不会匹配到半个词；
+ * - 词之间的分界不要求和关键字里的一样，连续几个分界也当作一个；
+ * - 不看非 ASCII 字符，只按分界切词，所以不适合中文这种没有分界的文本；
+ * - 含有忽略字符的关键字本来就匹配不到，这里直接跳过；切出来的词完全一样的关键字只保留字符顺序在前的那个；
+ * - 不会通知 {@link ScanListener}。
+ * <p>
+ * 不可变，可以被多个线程同时使用。
+ */
+public final class TokenTrieMatcher {
+
+    private static final int ROOT = 0;
+    private static final long NO_EDGE = -1;
+
+    private final KeywordMatcher matcher;
+
+    /**
+     * 所有的词首尾相接，第 i 个词是 [word_offsets[i], word_offsets[i + 1])
+     */
+    private final char[] word_chars;
+    private final int[] word_offsets;
+    private final int[] word_hashes;
+    /**
+     * 按词的哈希值开放寻址，存词的编号加一，0 表示空
+     */
+    private final int[] word_slots;
+    private final int max_word_length;
+
+    /**
+     * 每个节点的 clean name，不是关键字结尾的是 null。根节点是 0
+     */
+    private final String[] clean_names;
+    /**
+     * 边的开放寻址表，key 是父节点和词的编号拼起来，{@link #NO_EDGE} 表示空
+     */
+    private final long[] edge_keys;
+    private final int[] edge_targets;
+    /**
+     * 最长的关键字有几个词
+     */
+    private final int max_depth;
+
+    private TokenTrieMatcher(KeywordMatcher matcher, Builder builder) {
+        this.matcher = matcher;
+        this.word_chars = Arrays.copyOf(builder.word_chars, builder.word_char_count);
+        this.word_offsets = Arrays.copyOf(builder.word_offsets, builder.word_count + 1);
+        this.word_hashes = Arrays.copyOf(builder.word_hashes, builder.word_count);
+        this.word_slots = builder.word_slots;
+        this.max_word_length = builder.max_word_length;
+        this.clean_names = Arrays.copyOf(builder.clean_names, builder.node_count);
+        this.edge_keys = builder.edge_keys;
+        this.edge_targets = builder.edge_targets;
+        this.max_depth = builder.max_depth;
+    }
+
+    /**
+     * 堆外的快照不支持，见 {@link KeywordMatcher#off_heap()}
+     */
+    public static TokenTrieMatcher of(KeywordMatcher matcher) {
+        matcher.require_on_heap("token_trie");
+        Builder builder = new Builder();
+        StringBuilder word = new StringBuilder();
+        int[] path = new int[16];
+        KeywordCursor keywords = matcher.keywords("");
+        next_keyword:
+        while (keywords.hasNext()) {
+            Map.Entry<String, String> entry = keywords.next();
+            // 字典树里的关键字已经转过大小写了
+            String keyword = entry.getKey();
+            int depth = 0;
+            for (int i = 0; i <= keyword.length(); i++) {
+                char ch = i < keyword.length() ? keyword.charAt(i) : ' ';
+                if (i < keyword.length() && matcher.is_ignored(ch))
+                    continue next_keyword;
+                if (i < keyword.length() && !matcher.is_boundary(ch)) {
+                    word.append(ch);
+                } else if (word.length() > 0) {
+                    if (depth == path.length)
+                        path = Arrays.copyOf(path, depth * 2);
+                    path[depth++] = builder.intern(word);
+                    word.setLength(0);
+                }
+            }
+            if (depth > 0)
+                builder.insert(path, depth, entry.getValue());
+        }
+        return new TokenTrieMatcher(matcher, builder);
+    }
+
+    /**
+     * @return 节点个数，包括根节点
+     */
+    public int node_count() {
+        return this.clean_names.length;
+    }
+
+    /**
+     * @return 关键字里一共有多少个不同的词
+     */
+    public int word_count() {
+        return this.word_hashes.length;
+    }
+
+    public List<KeywordProcessor.MatchResult> extract_keywords(String sentence) {
+        List<KeywordProcessor.MatchResult> keywords_extracted = new ArrayList<>();
+        extract_keywords(sentence, (clean_name, start, end) ->
+                keywords_extracted.add(new KeywordProcessor.MatchResult(clean_name, start, end)));
+        return keywords_extracted;
+    }
+
+    /**
+     * 匹配结果通过回调给出，每次调用只分配一个和最长关键字一样多个词的窗口，以及一个和最长的词一样长的缓冲
+     */
+    public void extract_keywords(CharSequence sentence, MatchConsumer consumer) {
+        int depth = this.max_depth;
+        if (depth == 0)
+            return;
+        Tokens tokens = new Tokens(sentence);
+        // 还没匹配过的词，从 head 开始的 count 个，环形使用
+        int[] ids = new int[depth];
+        int[] starts = new int[depth];
+        int[] ends = new int[depth];
+        int head = 0;
+        int count = 0;
+
+        while (true) {
+            // 从窗口的第一个词开始往下走，记住最长的关键字
+            int node = ROOT;
+            String longest = null;
+            int longest_words = 0;
+            for (int i = 0; ; i++) {
+                if (i == count) {
+                    if (count == depth || !tokens.next())
+                        break;
+                    int slot = (head + count) % depth;
+                    ids[slot] = tokens.id;
+                    starts[slot] = tokens.start;
+                    ends[slot] = tokens.end;
+                    count++;
+                }
+                int id = ids[(head + i) % depth];
+                node = id < 0 ? -1 : child(node, id);
+                if (node < 0)
+                    break;
+                if (this.clean_names[node] != null) {
+                    longest = this.clean_names[node];
+                    longest_words = i + 1;
+                }
+            }
+            // 没有词了
+            if (count == 0)
+                break;
+
+            if (longest != null) {
+                consumer.accept(longest, starts[head], ends[(head + longest_words - 1) % depth]);
+                head = (head + longest_words) % depth;
+                count -= longest_words;
+            } else {
+                head = (head + 1) % depth;
+                count--;
+            }
+        }
+    }
+
+    private int child(int node, int word) {
+        long key = edge_key(node, word);
+        int mask = this.edge_keys.length - 1;
+        for (int slot = (int) mix(key) & mask; ; slot = (slot + 1) & mask) {
+            long current = this.edge_keys[slot];
+            if (current == key)
+                return this.edge_targets[slot];
+            if (current == NO_EDGE)
+                return -1;
+        }
+    }
+
+    /**
+     * @return 词的编号，不是关键字里的词返回 -1
+     */
+    private int word_id(char[] word, int length, int hash) {
+        int mask = this.word_slots.length - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = this.word_slots[slot] - 1;
+            if (id < 0)
+                return -1;
+            if (this.word_hashes[id] == hash && word_equals(id, word, length))
+                return id;
+        }
+    }
+
+    private boolean word_equals(int id, char[] word, int length) {
+        int offset = this.word_offsets[id];
+        if (this.word_offsets[id + 1] - offset != length)
+            return false;
+        for (int i = 0; i < length; i++)
+            if (this.word_chars[offset + i] != word[i])
+                return false;
+        return true;
+    }
+
+    private static long edge_key(int node, int word) {
+        return (long) node << 32 | word;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * MurmurHash3 的 fmix64
+     */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb93e3c5e4c63L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    /**
+     * 把文本切成词，每次 {@link #next()} 给出下一个词的编号和位置
+     */
+    private final class Tokens {
+        private final CharSequence sentence;
+        private final char[] word = new char[TokenTrieMatcher.this.max_word_length];
+        private int pos;
+
+        int id;
+        /**
+         * 词的起点，前面紧挨着的忽略字符也算在词里，和按字符匹配一样
+         */
+        int start;
+        /**
+         * 词后面第一个分界的位置，或者文本的长度
+         */
+        int end;
+
+        Tokens(CharSequence sentence) {
+            this.sentence = sentence;
+        }
+
+        boolean next() {
+            KeywordMatcher matcher = TokenTrieMatcher.this.matcher;
+            CharSequence sentence = this.sentence;
+            int length = sentence.length();
+            int pos = this.pos;
+            while (pos < length) {
+                char ch = matcher.fold(sentence.charAt(pos));
+                if (matcher.is_ignored(ch) || !matcher.is_boundary(ch))
+                    break;
+                pos++;
+            }
+            if (pos == length)
+                return false;
+
+            this.start = pos;
+            int word_length = 0;
+            int hash = 0;
+            for (; pos < length; pos++) {
+                char ch = matcher.fold(sentence.charAt(pos));
+                if (matcher.is_ignored(ch))
+                    continue;
+                if (matcher.is_boundary(ch))
+                    break;
+                if (word_length < this.word.length)
+                    this.word[word_length] = ch;
+                word_length++;
+                hash = 31 * hash + ch;
+            }
+            this.end = pos;
+            this.pos = pos;
+            // 只有忽略字符的、比最长的词还长的，都不可能是关键字里的词
+            this.id = word_length == 0 || word_length > this.word.length ? -1 : word_id(this.word, word_length, hash);
+            return true;
+        }
+    }
+
+    /**
+     * 建字典的时候用，数组都按需变大
+     */
+    private static final class Builder {
+        char[] word_chars = new char[256];
+        int word_char_count;
+        int[] word_offsets = new int[65];
+        int[] word_hashes = new int[64];
+        int word_count;
+        int[] word_slots = new int[128];
+        int max_word_length;
+
+        String[] clean_names = new String[64];
+        int node_count = 1;
+        long[] edge_keys = new long[128];
+        int[] edge_targets = new int[128];
+        int edge_count;
+        int max_depth;
+
+        Builder() {
+            Arrays.fill(this.edge_keys, NO_EDGE);
+        }
+
+        int intern(CharSequence word) {
+            int hash = 0;
+            for (int i = 0; i < word.length(); i++)
+                hash = 31 * hash + word.charAt(i);
+            int mask = this.word_slots.length - 1;
+            int slot = spread(hash) & mask;
+            for (; this.word_slots[slot] != 0; slot = (slot + 1) & mask) {
+                int id = this.word_slots[slot] - 1;
+                if (this.word_hashes[id] == hash && equals(id, word))
+                    return id;
+            }
+
+            int id = this.word_count++;
+            if (this.word_count == this.word_hashes.length) {
+                this.word_hashes = Arrays.copyOf(this.word_hashes, this.word_count * 2);
+                this.word_offsets = Arrays.copyOf(this.word_offsets, this.word_count * 2 + 1);
+            }
+            while (this.word_char_count + word.length() > this.word_chars.length)
+                this.word_chars = Arrays.copyOf(this.word_chars, this.word_chars.length * 2);
+            for (int i = 0; i < word.length(); i++)
+                this.word_chars[this.word_char_count++] = word.charAt(i);
+            this.word_hashes[id] = hash;
+            this.word_offsets[id + 1] = this.word_char_count;
+            this.word_slots[slot] = id + 1;
+            this.max_word_length = Math.max(this.max_word_length, word.length());
+
+            if (this.word_count * 2 > this.word_slots.length)
+                rehash_words();
+            return id;
+        }
+
+        private boolean equals(int id, CharSequence word) {
+            int offset = this.word_offsets[id];
+            if (this.word_offsets[id + 1] - offset != word.length())
+                return false;
+            for (int i = 0; i < word.length(); i++)
+                if (this.word_chars[offset + i] != word.charAt(i))
+                    return false;
+            return true;
+        }
+
+        private void rehash_words() {
+            int[] slots = new int[this.word_slots.length * 2];
+            int mask = slots.length - 1;
+            for (int id = 0; id < this.word_count; id++) {
+                int slot = spread(this.word_hashes[id]) & mask;
+                while (slots[slot] != 0)
+                    slot = (slot + 1) & mask;
+                slots[slot] = id + 1;
+            }
+            this.word_slots = slots;
+        }
+
+        void insert(int[] path, int depth, String clean_name) {
+            int node = ROOT;
+            for (int i = 0; i < depth; i++)
+                node = child_or_add(node, path[i]);
+            if (this.clean_names[node] == null)
+                this.clean_names[node] = clean_name;
+            this.max_depth = Math.max(this.max_depth, depth);
+        }
+
+        private int child_or_add(int node, int word) {
+            long key = edge_key(node, word);
+            int mask = this.edge_keys.length - 1;
+            int slot = (int) mix(key) & mask;
+            for (; this.edge_keys[slot] != NO_EDGE; slot = (slot + 1) & mask)
+                if (this.edge_keys[slot] == key)
+                    return this.edge_targets[slot];
+
+            int child = this.node_count++;
+            if (this.node_count > this.clean_names.length)
+                this.clean_names = Arrays.copyOf(this.clean_names, this.node_count * 2);
+            this.edge_keys[slot] = key;
+            this.edge_targets[slot] = child;
+            if (++this.edge_count * 2 > this.edge_keys.length)
+                rehash_edges();
+            return child;
+        }
+
+        private void rehash_edges() {
+            long[] keys = new long[this.edge_keys.length * 2];
+            int[] targets = new int[keys.length];
+            Arrays.fill(keys, NO_EDGE);
+            int mask = keys.length - 1;
+            for (int i = 0; i < this.edge_keys.length; i++) {
+                long key = this.edge_keys[i];
+                if (key == NO_EDGE)
+                    continue;
+                int slot = (int) mix(key) & mask;
+                while (keys[slot] != NO_EDGE)
+                    slot = (slot + 1) & mask;
+                keys[slot] = key;
+                targets[slot] = this.edge_targets[i];
+            }
+            this.edge_keys = keys;
+            this.edge_targets = targets;
+        }
+    }
+}
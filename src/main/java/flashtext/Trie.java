@@ -0,0 +1,51 @@
+package flashtext;
+
+/**
+ * 字典树的只读视图。节点用 int 句柄表示，遍历时不会产生任何对象。
+ * <p>
+ * 每个节点的子节点按字符升序排列，可以用 {@link #child_count(int)} / {@link #child_key(int, int)} /
+ * {@link #child_node(int, int)} 依次遍历。
+ */
+public interface Trie {
+
+    /**
+     * 不存在的节点
+     */
+    int NO_NODE = -1;
+
+    int root();
+
+    /**
+     * @return 字符 ch 对应的子节点，没有则返回 {@link #NO_NODE}
+     */
+    int child(int node, char ch);
+
+    /**
+     * @return 以该节点结尾的关键字的 clean name，不是关键字结尾则返回 null
+     */
+    String clean_name(int node);
+
+    /**
+     * @return 是不是关键字结尾，clean name 不在堆上的实现可以不用解码 clean name 就回答
+     */
+    default boolean is_keyword(int node) {
+        return clean_name(node) != null;
+    }
+
+    int child_count(int node);
+
+    /**
+     * @return 第 i 个子节点的字符，按升序排列
+     */
+    char child_key(int node, int i);
+
+    /**
+     * @return 第 i 个子节点
+     */
+    int child_node(int node, int i);
+
+    /**
+     * @return 字典里关键字的个数
+     */
+    int size();
+}
@@ -0,0 +1,211 @@
+package flashtext;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * 编译好的字典的二进制格式，用来在启动的时候直接加载，不用重新 add_keyword，也用来把字典放到堆外。
+ * <p>
+ * 所有数字都是大端，依次是：
+ * - 头：magic、版本号、flags（最低位是 case_sensitive）、关键字个数、节点数、clean name 个数、clean name 总字符数；
+ * - word_boundaries：个数，然后每个是长度加字符；
+ * - 字典树，见 {@link MappedTrie}；
+ * - 前面所有字节的 CRC32。
+ * <p>
+ * 加载的时候把整个文件映射进来，校验过 magic、版本号、长度和 CRC32 之后直接在映射的缓冲区上匹配。
+ * 一个文件最大 2GB。
+ */
+final class TrieFile {
+
+    static final int MAGIC = 0x46544b57;
+    static final int VERSION = 1;
+
+    private static final int FLAG_CASE_SENSITIVE = 1;
+    private static final int HEADER_BYTES = 7 * 4;
+
+    private TrieFile() {
+    }
+
+    /**
+     * 先写到同一个目录下的临时文件，写完再改名，正在加载的进程不会读到写了一半的文件。
+     * 改名之前先把临时文件刷到磁盘上，否则机器崩溃之后改名可能已经生效，文件内容却还没写完
+     */
+    static void write(KeywordMatcher matcher, Path file) throws IOException {
+        ByteBuffer encoded = encode(matcher, false);
+        Path absolute = file.toAbsolutePath();
+        Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (encoded.hasRemaining())
+                    channel.write(encoded);
+                channel.force(true);
+            }
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @param cache_clean_names 见 {@link MappedTrie}
+     */
+    static KeywordMatcher load(Path file, boolean cache_clean_names) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException(file + " is larger than 2GB");
+            if (size < HEADER_BYTES + 4 + 4)
+                throw new IOException(file + " is too short to be a trie file");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        int limit = buffer.limit();
+        if (buffer.getInt(0) != MAGIC)
+            throw new IOException(file + " is not a trie file");
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException(file + " has version " + buffer.getInt(4) + ", expected " + VERSION);
+        if (checksum(buffer, limit - 4) != buffer.getInt(limit - 4))
+            throw new IOException(file + " is corrupt: checksum mismatch");
+
+        KeywordMatcher matcher = decode(buffer, cache_clean_names);
+        if (matcher == null)
+            throw new IOException(file + " is corrupt: unexpected length");
+        return matcher;
+    }
+
+    /**
+     * 在堆外的 direct buffer 里放一份 matcher 的字典，字典树和 clean name 都不占堆
+     */
+    static KeywordMatcher off_heap(KeywordMatcher matcher) {
+        return decode(encode(matcher, true), false);
+    }
+
+    /**
+     * @return 包括 CRC32 在内的完整内容，position 是 0
+     */
+    private static ByteBuffer encode(KeywordMatcher matcher, boolean direct) {
+        Trie trie = matcher.trie();
+        int[] order = CompiledTrie.bfs_order(trie);
+        int node_count = order.length;
+
+        Map<String, Integer> name_index = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        int name_chars = 0;
+        int[] node_names = new int[node_count];
+        for (int i = 0; i < node_count; i++) {
+            String clean_name = trie.clean_name(order[i]);
+            if (clean_name == null) {
+                node_names[i] = -1;
+                continue;
+            }
+            Integer index = name_index.get(clean_name);
+            if (index == null) {
+                index = names.size();
+                name_index.put(clean_name, index);
+                names.add(clean_name);
+                name_chars += clean_name.length();
+            }
+            node_names[i] = index;
+        }
+
+        long size = HEADER_BYTES + 4 + MappedTrie.section_bytes(node_count, names.size(), name_chars) + 4;
+        for (String boundary : matcher.word_boundaries())
+            size += 4 + 2L * boundary.length();
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalStateException("dictionary needs " + size + " bytes, more than 2GB");
+
+        ByteBuffer out = direct ? ByteBuffer.allocateDirect((int) size) : ByteBuffer.allocate((int) size);
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putInt(matcher.case_sensitive() ? FLAG_CASE_SENSITIVE : 0);
+        out.putInt(trie.size());
+        out.putInt(node_count);
+        out.putInt(names.size());
+        out.putInt(name_chars);
+
+        out.putInt(matcher.word_boundaries().size());
+        for (String boundary : matcher.word_boundaries()) {
+            out.putInt(boundary.length());
+            put_chars(out, boundary);
+        }
+
+        int edge = 0;
+        for (int node : order) {
+            out.putInt(edge);
+            edge += trie.child_count(node);
+        }
+        out.putInt(edge);
+        for (int node : order)
+            for (int c = 0; c < trie.child_count(node); c++)
+                out.putChar(trie.child_key(node, c));
+        for (int index : node_names)
+            out.putInt(index);
+
+        int offset = 0;
+        for (String name : names) {
+            out.putInt(offset);
+            offset += name.length();
+        }
+        out.putInt(offset);
+        for (String name : names)
+            put_chars(out, name);
+
+        out.putInt(checksum(out, out.position()));
+        out.flip();
+        return out;
+    }
+
+    /**
+     * @return 长度和头里记的对不上时返回 null
+     */
+    private static KeywordMatcher decode(ByteBuffer buffer, boolean cache_clean_names) {
+        boolean case_sensitive = (buffer.getInt(8) & FLAG_CASE_SENSITIVE) != 0;
+        int terms = buffer.getInt(12);
+        int node_count = buffer.getInt(16);
+        int name_count = buffer.getInt(20);
+        int name_chars = buffer.getInt(24);
+
+        int position = HEADER_BYTES;
+        int boundary_count = buffer.getInt(position);
+        position += 4;
+        List<String> word_boundaries = new ArrayList<>(boundary_count);
+        for (int i = 0; i < boundary_count; i++) {
+            char[] boundary = new char[buffer.getInt(position)];
+            position += 4;
+            for (int c = 0; c < boundary.length; c++, position += 2)
+                boundary[c] = buffer.getChar(position);
+            word_boundaries.add(new String(boundary));
+        }
+
+        if (node_count < 1 || position + MappedTrie.section_bytes(node_count, name_count, name_chars) != buffer.limit() - 4)
+            return null;
+        MappedTrie trie = new MappedTrie(buffer, position, node_count, name_count, terms, cache_clean_names);
+        return new KeywordMatcher(trie, case_sensitive, word_boundaries);
+    }
+
+    private static int checksum(ByteBuffer buffer, int length) {
+        CRC32 crc = new CRC32();
+        ByteBuffer content = buffer.duplicate();
+        content.position(0);
+        content.limit(length);
+        crc.update(content);
+        return (int) crc.getValue();
+    }
+
+    private static void put_chars(ByteBuffer out, String chars) {
+        for (int i = 0; i < chars.length(); i++)
+            out.putChar(chars.charAt(i));
+    }
+}